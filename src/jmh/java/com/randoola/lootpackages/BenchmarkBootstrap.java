@@ -0,0 +1,117 @@
+package com.randoola.lootpackages;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import net.minecraft.SharedConstants;
+import net.minecraft.core.MappedRegistry;
+import net.minecraft.core.Registry;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.Bootstrap;
+import net.minecraft.world.item.Item;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brings up just enough of the game for the benchmarks: the vanilla registries, the shipped package
+ * definitions (read straight from the classpath) and the allowed-item cache. No server, level or player.
+ */
+final class BenchmarkBootstrap {
+
+    private static boolean initialized;
+
+    private BenchmarkBootstrap() {
+    }
+
+    static synchronized void init() {
+        if (initialized) {
+            return;
+        }
+
+        SharedConstants.tryDetectVersion();
+        Bootstrap.bootStrap();
+
+        Map<ResourceLocation, JsonElement> definitions = new HashMap<>();
+        for (LootPackagesMod.PackageType packageType : LootPackagesMod.PackageType.BUILT_IN) {
+            ResourceLocation id = packageType.getId();
+            String path = "data/" + id.getNamespace() + "/packages/" + id.getPath() + ".json";
+            try (InputStream stream = BenchmarkBootstrap.class.getClassLoader().getResourceAsStream(path)) {
+                if (stream == null) {
+                    throw new IllegalStateException("Missing package definition on the classpath: " + path);
+                }
+                try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+                    definitions.put(id, JsonParser.parseReader(reader));
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to read " + path, e);
+            }
+        }
+        PackageLootTables.load(definitions);
+
+        LootPackagesMod.rebuildItemCache();
+        initialized = true;
+    }
+
+    /**
+     * Whether the type ships a lootpackages:packages/<type> loot table. Those need a level to evaluate, so the
+     * benchmarks and the simulator only cover the compiled definition of such types.
+     */
+    static boolean hasLootTable(LootPackagesMod.PackageType packageType) {
+        ResourceLocation id = PackageLootTables.getLootTableKey(packageType).location();
+        String path = "data/" + id.getNamespace() + "/loot_table/" + id.getPath() + ".json";
+        return BenchmarkBootstrap.class.getClassLoader().getResource(path) != null;
+    }
+
+    /**
+     * All registered items, in registry order.
+     */
+    static Item[] registryItems() {
+        List<Item> items = new ArrayList<>();
+        BuiltInRegistries.ITEM.forEach(items::add);
+        return items.toArray(new Item[0]);
+    }
+
+    /**
+     * Grows the item registry to the given number of distinct items with synthetic lootpackages_bench:item_<n>
+     * items, a mix of unstackable, 16- and 64-stacking ones, so registry-wide code sees a modpack-sized
+     * registry. Call it after init() and rebuild whatever depends on the registry; the registry cannot shrink
+     * again, but JMH forks a fresh JVM for each parameter set. Does nothing if the registry is already that
+     * large.
+     */
+    static synchronized void growItemRegistry(int size) {
+        MappedRegistry<Item> registry = (MappedRegistry<Item>) BuiltInRegistries.ITEM;
+        int missing = size - registry.size();
+        if (missing <= 0) {
+            return;
+        }
+
+        // Bootstrap froze the registry; reopen it the way it was before freezing, register, and freeze again
+        try {
+            Field frozen = MappedRegistry.class.getDeclaredField("frozen");
+            frozen.setAccessible(true);
+            frozen.setBoolean(registry, false);
+            Field intrusiveHolders = MappedRegistry.class.getDeclaredField("unregisteredIntrusiveHolders");
+            intrusiveHolders.setAccessible(true);
+            intrusiveHolders.set(registry, new IdentityHashMap<>());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot reopen the item registry", e);
+        }
+
+        for (int i = 0; i < missing; i++) {
+            int maxStackSize = i % 8 == 0 ? 1 : i % 4 == 0 ? 16 : 64;
+            Registry.register(registry, ResourceLocation.fromNamespaceAndPath("lootpackages_bench", "item_" + i),
+                    new Item(new Item.Properties().stacksTo(maxStackSize)));
+        }
+        registry.freeze();
+    }
+}
@@ -0,0 +1,57 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.level.levelgen.XoroshiroRandomSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-item helpers on the mystery path: amount rolls and the exclusion check, cycling through every
+ * registered item so branch prediction sees a realistic mix.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemBenchmark {
+
+    private Item[] items;
+    private RandomSource random;
+    private int next;
+
+    @Setup
+    public void setup() {
+        BenchmarkBootstrap.init();
+        items = BenchmarkBootstrap.registryItems();
+        random = new XoroshiroRandomSource(42L);
+    }
+
+    private Item nextItem() {
+        Item item = items[next];
+        next = next + 1 == items.length ? 0 : next + 1;
+        return item;
+    }
+
+    @Benchmark
+    public int getRandomAmount() {
+        return LootPackagesMod.getRandomAmount(nextItem(), random);
+    }
+
+    @Benchmark
+    public boolean isItemAllowed() {
+        return LootPackagesMod.isItemAllowed(nextItem());
+    }
+}
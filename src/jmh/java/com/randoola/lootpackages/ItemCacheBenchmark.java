@@ -0,0 +1,49 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.world.item.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full allowed-item cache build (filtering, mystery sampler, amount profiles) over the whole item registry,
+ * at about vanilla size and grown with synthetic items to the size of a large modpack.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemCacheBenchmark {
+
+    // Distinct registered items; vanilla alone has about 1.3k
+    @Param({"1500", "30000"})
+    public int registeredItems;
+
+    private List<Item> items;
+
+    @Setup
+    public void setup() {
+        BenchmarkBootstrap.init();
+        BenchmarkBootstrap.growItemRegistry(registeredItems);
+        items = List.of(BenchmarkBootstrap.registryItems());
+    }
+
+    @Benchmark
+    public int buildItemCache() {
+        LootPackagesMod.buildItemCache(items);
+        return LootPackagesMod.getMysterySampler().size();
+    }
+}
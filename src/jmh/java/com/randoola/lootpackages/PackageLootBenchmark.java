@@ -0,0 +1,68 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.level.levelgen.XoroshiroRandomSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generation cost of every package type: the raw table roll, and the full roll + coalesce + ItemStack
+ * materialization that generatePackageLoot performs before inventory insertion.
+ *
+ * Covers the compiled package definitions only. A type's lootpackages:packages/<type> loot table (Deep Dark
+ * has one) needs a level and is not part of these numbers; setup logs a warning for such types.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PackageLootBenchmark {
+
+    @Param({"starter_survival", "dungeon_loot", "treasure", "nether_loot", "end_loot",
+            "mob_drop", "biome", "mystery", "deep_dark"})
+    public String packageName;
+
+    private LootPackagesMod.PackageType packageType;
+    private RandomSource random;
+    private LootBuffer buffer;
+
+    @Setup
+    public void setup() {
+        BenchmarkBootstrap.init();
+        packageType = LootPackagesMod.PackageType.byName(packageName);
+        if (BenchmarkBootstrap.hasLootTable(packageType)) {
+            System.out.println("WARNING: " + packageType + " has a loot table that is not benchmarked; results cover its definition only");
+        }
+        random = new XoroshiroRandomSource(42L);
+        buffer = new LootBuffer();
+    }
+
+    @Benchmark
+    public int roll() {
+        buffer.clear();
+        LootPackagesMod.rollPackageLoot(packageType, random, buffer);
+        return buffer.size();
+    }
+
+    @Benchmark
+    public int rollAndMaterialize(Blackhole blackhole) {
+        buffer.clear();
+        LootPackagesMod.rollPackageLoot(packageType, random, buffer);
+        buffer.coalesce();
+        return buffer.forEachStack(blackhole::consume);
+    }
+}
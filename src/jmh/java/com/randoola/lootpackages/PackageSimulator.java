@@ -0,0 +1,400 @@
+package com.randoola.lootpackages;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2LongMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.levelgen.XoroshiroRandomSource;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Headless Monte Carlo simulation of package contents, for balancing drop rates and contents without opening
+ * packages in game. Rolls each package type's compiled definition through the same code as opening a package
+ * (LootPackagesMod.rollPackageLoot, with no biome) and reports, per item, the mean, variance and percentiles of
+ * the count per package and its value-weighted expected total.
+ *
+ * A type's lootpackages:packages/<type> loot table needs a level to evaluate and is not simulated. Reports
+ * for types that have one are incomplete: a warning is printed and their rows are flagged with
+ * loot_table_excluded (CSV column, JSON property).
+ *
+ * Run with `./gradlew simulatePackages`, passing options with -PsimArgs="...":
+ *   --runs N        packages rolled per type (default 1000000)
+ *   --seed S        root seed (default 0)
+ *   --package ID    a type to simulate, repeatable (default: every built-in type)
+ *   --values FILE   item values as "namespace:item=value" lines; unlisted items are worth 0
+ *   --format F      csv or json (default csv)
+ *   --out FILE      report file (default build/reports/simulation/packages.<format>)
+ *   --threads N     fork/join parallelism (default: all cores)
+ *
+ * Runs are split into fixed-size chunks, each rolled with its own random source. The seeds come from splitting
+ * a SplittableRandom along a split tree that depends only on the run count, and the statistics are exact integer
+ * histograms, so a report depends only on the seed, the run count and the definitions, never on thread count or
+ * scheduling. Reports from two releases can be diffed directly.
+ */
+public final class PackageSimulator {
+
+    private static final int CHUNK_RUNS = 4096;
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private PackageSimulator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Options options = Options.parse(args);
+        BenchmarkBootstrap.init();
+        ItemValues values = ItemValues.load(options.values);
+
+        List<LootPackagesMod.PackageType> packageTypes = new ArrayList<>();
+        if (options.packages.isEmpty()) {
+            packageTypes.addAll(LootPackagesMod.PackageType.BUILT_IN);
+        } else {
+            for (String name : options.packages) {
+                LootPackagesMod.PackageType packageType = LootPackagesMod.PackageType.byName(name);
+                if (packageType == null) {
+                    throw new IllegalArgumentException("Unknown package type: " + name);
+                }
+                packageTypes.add(packageType);
+            }
+        }
+
+        ForkJoinPool pool = options.threads > 0 ? new ForkJoinPool(options.threads) : ForkJoinPool.commonPool();
+        List<Report> reports = new ArrayList<>();
+        for (LootPackagesMod.PackageType packageType : packageTypes) {
+            long start = System.nanoTime();
+            // Every type starts from the same root seed, so adding a type does not change the others' results
+            int chunks = (int) ((options.runs + CHUNK_RUNS - 1) / CHUNK_RUNS);
+            Stats stats = pool.invoke(new SimulateTask(packageType, new SplittableRandom(options.seed), 0, chunks, options.runs));
+            boolean lootTableExcluded = BenchmarkBootstrap.hasLootTable(packageType);
+            reports.add(new Report(packageType, lootTableExcluded, stats));
+            System.out.printf(Locale.ROOT, "Simulated %d x %s in %d ms%n", options.runs, packageType,
+                    (System.nanoTime() - start) / 1_000_000);
+            if (lootTableExcluded) {
+                System.out.printf(Locale.ROOT, "WARNING: %s has loot table %s, which is not simulated; its report is incomplete%n",
+                        packageType, PackageLootTables.getLootTableKey(packageType).location());
+            }
+        }
+
+        Path out = options.out != null ? Path.of(options.out)
+                : Path.of("build", "reports", "simulation", "packages." + options.format);
+        if (out.getParent() != null) {
+            Files.createDirectories(out.getParent());
+        }
+        try (Writer writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            if (options.format.equals("json")) {
+                writeJson(writer, options, reports, values);
+            } else {
+                writeCsv(writer, reports, values);
+            }
+        }
+        System.out.println("Wrote " + out.toAbsolutePath());
+    }
+
+    /**
+     * Rolls the chunks [from, to) of one package type. Splits in halves down to single chunks; the left half
+     * keeps the random source and the right half gets a split of it, so every chunk's seed is fixed by its
+     * position in the tree.
+     */
+    private static final class SimulateTask extends RecursiveTask<Stats> {
+        private final LootPackagesMod.PackageType packageType;
+        private final SplittableRandom random;
+        private final int from;
+        private final int to;
+        private final long totalRuns;
+
+        private SimulateTask(LootPackagesMod.PackageType packageType, SplittableRandom random, int from, int to, long totalRuns) {
+            this.packageType = packageType;
+            this.random = random;
+            this.from = from;
+            this.to = to;
+            this.totalRuns = totalRuns;
+        }
+
+        @Override
+        protected Stats compute() {
+            if (to - from == 1) {
+                long runs = Math.min(CHUNK_RUNS, totalRuns - (long) from * CHUNK_RUNS);
+                return rollChunk(packageType, new XoroshiroRandomSource(random.nextLong(), random.nextLong()), runs);
+            }
+            int middle = (from + to) >>> 1;
+            SimulateTask right = new SimulateTask(packageType, random.split(), middle, to, totalRuns);
+            right.fork();
+            Stats stats = new SimulateTask(packageType, random, from, middle, totalRuns).compute();
+            stats.merge(right.join());
+            return stats;
+        }
+    }
+
+    private static Stats rollChunk(LootPackagesMod.PackageType packageType, XoroshiroRandomSource random, long runs) {
+        Stats stats = new Stats();
+        LootBuffer loot = new LootBuffer(32);
+        Int2IntOpenHashMap perPackage = new Int2IntOpenHashMap();
+        for (long run = 0; run < runs; run++) {
+            loot.clear();
+            LootPackagesMod.rollPackageLoot(packageType, random, loot);
+
+            // A package can hold the same item in several entries; the statistic is the count per package
+            perPackage.clear();
+            int totalItems = 0;
+            for (int i = 0; i < loot.size(); i++) {
+                perPackage.addTo(loot.itemId(i), loot.count(i));
+                totalItems += loot.count(i);
+            }
+            for (Int2IntMap.Entry entry : perPackage.int2IntEntrySet()) {
+                stats.histogram(entry.getIntKey()).addTo(entry.getIntValue(), 1);
+            }
+            stats.totalItems.addTo(totalItems, 1);
+            stats.runs++;
+        }
+        return stats;
+    }
+
+    /**
+     * Per-item histograms of the count per package (item id to count to packages). Packages without the item
+     * are not stored; they are the runs missing from its histogram.
+     */
+    private static final class Stats {
+        private final Int2ObjectOpenHashMap<Int2LongOpenHashMap> items = new Int2ObjectOpenHashMap<>();
+        private final Int2LongOpenHashMap totalItems = new Int2LongOpenHashMap();
+        private long runs;
+
+        private Int2LongOpenHashMap histogram(int itemId) {
+            Int2LongOpenHashMap histogram = items.get(itemId);
+            if (histogram == null) {
+                histogram = new Int2LongOpenHashMap();
+                items.put(itemId, histogram);
+            }
+            return histogram;
+        }
+
+        private void merge(Stats other) {
+            for (Int2ObjectMap.Entry<Int2LongOpenHashMap> entry : other.items.int2ObjectEntrySet()) {
+                Int2LongOpenHashMap histogram = histogram(entry.getIntKey());
+                for (Int2LongMap.Entry bucket : entry.getValue().int2LongEntrySet()) {
+                    histogram.addTo(bucket.getIntKey(), bucket.getLongValue());
+                }
+            }
+            for (Int2LongMap.Entry bucket : other.totalItems.int2LongEntrySet()) {
+                totalItems.addTo(bucket.getIntKey(), bucket.getLongValue());
+            }
+            runs += other.runs;
+        }
+    }
+
+    /**
+     * Distribution of one count per package, including the packages where it was 0.
+     */
+    private record Distribution(double mean, double variance, int[] percentiles, int max) {
+
+        static Distribution of(Int2LongOpenHashMap histogram, long runs) {
+            int[] counts = histogram.keySet().toIntArray();
+            IntArrays.quickSort(counts);
+
+            long seen = 0;
+            double sum = 0;
+            double sumOfSquares = 0;
+            for (int count : counts) {
+                long packages = histogram.get(count);
+                seen += packages;
+                sum += (double) count * packages;
+                sumOfSquares += (double) count * count * packages;
+            }
+            double mean = sum / runs;
+            double variance = Math.max(0.0, sumOfSquares / runs - mean * mean);
+
+            int[] percentiles = new int[PERCENTILES.length];
+            for (int p = 0; p < PERCENTILES.length; p++) {
+                long rank = (long) Math.ceil(PERCENTILES[p] / 100.0 * runs);
+                long cumulative = runs - seen;
+                int value = 0;
+                for (int count : counts) {
+                    if (cumulative >= rank) {
+                        break;
+                    }
+                    cumulative += histogram.get(count);
+                    value = count;
+                }
+                percentiles[p] = value;
+            }
+            return new Distribution(mean, variance, percentiles, counts.length == 0 ? 0 : counts[counts.length - 1]);
+        }
+    }
+
+    private record ItemRow(ResourceLocation item, double value, Distribution distribution) {
+        double expectedValue() {
+            return distribution.mean() * value;
+        }
+    }
+
+    private record Report(LootPackagesMod.PackageType packageType, boolean lootTableExcluded, long runs,
+                          Distribution totalItems, List<ItemRow> items) {
+
+        Report(LootPackagesMod.PackageType packageType, boolean lootTableExcluded, Stats stats) {
+            this(packageType, lootTableExcluded, stats.runs, Distribution.of(stats.totalItems, stats.runs), rows(stats));
+        }
+
+        private static List<ItemRow> rows(Stats stats) {
+            List<ItemRow> rows = new ArrayList<>();
+            for (Int2ObjectMap.Entry<Int2LongOpenHashMap> entry : stats.items.int2ObjectEntrySet()) {
+                ResourceLocation item = BuiltInRegistries.ITEM.getKey(BuiltInRegistries.ITEM.byId(entry.getIntKey()));
+                rows.add(new ItemRow(item, 0.0, Distribution.of(entry.getValue(), stats.runs)));
+            }
+            // Sorted by id so reports diff cleanly
+            rows.sort((a, b) -> a.item().compareTo(b.item()));
+            return rows;
+        }
+
+        List<ItemRow> valued(ItemValues values) {
+            return items.stream().map(row -> new ItemRow(row.item(), values.get(row.item()), row.distribution())).toList();
+        }
+    }
+
+    private static void writeCsv(Writer writer, List<Report> reports, ItemValues values) throws IOException {
+        writer.write("package,item,value,mean,variance,p50,p90,p99,max,expected_value,loot_table_excluded\n");
+        for (Report report : reports) {
+            double total = 0;
+            for (ItemRow row : report.valued(values)) {
+                writer.write(csvRow(report, row.item().toString(), row.value(), row.distribution(), row.expectedValue()));
+                total += row.expectedValue();
+            }
+            // Summary row: total items per package, and the expected value of a whole package
+            writer.write(csvRow(report, "*", 0.0, report.totalItems(), total));
+        }
+    }
+
+    private static String csvRow(Report report, String item, double value, Distribution distribution, double expectedValue) {
+        int[] percentiles = distribution.percentiles();
+        return String.format(Locale.ROOT, "%s,%s,%s,%.6f,%.6f,%d,%d,%d,%d,%.6f,%b%n", report.packageType(), item, value,
+                distribution.mean(), distribution.variance(), percentiles[0], percentiles[1], percentiles[2],
+                distribution.max(), expectedValue, report.lootTableExcluded());
+    }
+
+    private static void writeJson(Writer writer, Options options, List<Report> reports, ItemValues values) {
+        JsonObject root = new JsonObject();
+        root.addProperty("seed", options.seed);
+        root.addProperty("runs", options.runs);
+
+        JsonArray packages = new JsonArray();
+        for (Report report : reports) {
+            JsonObject packageJson = new JsonObject();
+            packageJson.addProperty("package", report.packageType().toString());
+            packageJson.addProperty("loot_table_excluded", report.lootTableExcluded());
+            packageJson.add("total_items", distributionJson(report.totalItems()));
+
+            JsonArray items = new JsonArray();
+            double total = 0;
+            for (ItemRow row : report.valued(values)) {
+                JsonObject itemJson = distributionJson(row.distribution());
+                itemJson.addProperty("item", row.item().toString());
+                itemJson.addProperty("value", row.value());
+                itemJson.addProperty("expected_value", row.expectedValue());
+                items.add(itemJson);
+                total += row.expectedValue();
+            }
+            packageJson.addProperty("expected_value", total);
+            packageJson.add("items", items);
+            packages.add(packageJson);
+        }
+        root.add("packages", packages);
+
+        new GsonBuilder().setPrettyPrinting().create().toJson(root, writer);
+    }
+
+    private static JsonObject distributionJson(Distribution distribution) {
+        JsonObject json = new JsonObject();
+        json.addProperty("mean", distribution.mean());
+        json.addProperty("variance", distribution.variance());
+        for (int p = 0; p < PERCENTILES.length; p++) {
+            json.addProperty("p" + (int) PERCENTILES[p], distribution.percentiles()[p]);
+        }
+        json.addProperty("max", distribution.max());
+        return json;
+    }
+
+    /**
+     * Item values for the expected-value columns, keyed by item id.
+     */
+    private record ItemValues(Map<ResourceLocation, Double> values) {
+
+        static ItemValues load(String file) throws IOException {
+            Map<ResourceLocation, Double> values = new HashMap<>();
+            if (file != null) {
+                for (String line : Files.readAllLines(Path.of(file), StandardCharsets.UTF_8)) {
+                    String rule = line.trim();
+                    if (rule.isEmpty() || rule.startsWith("#")) {
+                        continue;
+                    }
+                    int separator = rule.indexOf('=');
+                    ResourceLocation item = separator > 0 ? ResourceLocation.tryParse(rule.substring(0, separator).trim()) : null;
+                    if (item == null) {
+                        throw new IllegalArgumentException("Invalid value line: " + line);
+                    }
+                    values.put(item, Double.parseDouble(rule.substring(separator + 1).trim()));
+                }
+            }
+            return new ItemValues(values);
+        }
+
+        double get(ResourceLocation item) {
+            return values.getOrDefault(item, 0.0);
+        }
+    }
+
+    private static final class Options {
+        private long runs = 1_000_000;
+        private long seed = 0;
+        private final List<String> packages = new ArrayList<>();
+        private String values;
+        private String format = "csv";
+        private String out;
+        private int threads;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + arg);
+                }
+                String value = args[++i];
+                switch (arg) {
+                    case "--runs" -> options.runs = Long.parseLong(value);
+                    case "--seed" -> options.seed = Long.parseLong(value);
+                    case "--package" -> options.packages.add(value);
+                    case "--values" -> options.values = value;
+                    case "--format" -> options.format = value.toLowerCase(Locale.ROOT);
+                    case "--out" -> options.out = value;
+                    case "--threads" -> options.threads = Integer.parseInt(value);
+                    default -> throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (options.runs < 1) {
+                throw new IllegalArgumentException("--runs must be at least 1");
+            }
+            if (!options.format.equals("csv") && !options.format.equals("json")) {
+                throw new IllegalArgumentException("--format must be csv or json");
+            }
+            return options;
+        }
+    }
+}
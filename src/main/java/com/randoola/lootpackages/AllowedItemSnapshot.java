@@ -0,0 +1,201 @@
+package com.randoola.lootpackages;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.Item;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable view of the items that random packages may hand out. A snapshot is built off to the side and
+ * published with a single volatile write, so readers on any thread never lock and never see a partial build.
+ *
+ * Membership is a registry-id bitset and sampling works on a dense registry-id array, so neither hashes.
+ */
+public final class AllowedItemSnapshot {
+
+    /** Placeholder until the first build, distinct from a build that legitimately allowed nothing */
+    static final AllowedItemSnapshot NOT_BUILT = new AllowedItemSnapshot(new long[0], new int[0], 0, MysterySampler.EMPTY,
+            ItemCategoryIndex.EMPTY, new ItemCategoryIndex.Category[0], null);
+
+    private static volatile AllowedItemSnapshot current = NOT_BUILT;
+
+    private final long[] allowedBits;
+    private final int[] itemIds;
+    private final int totalItems;
+    private final MysterySampler mysterySampler;
+    private final ItemCategoryIndex categories;
+    private final ItemCategoryIndex.Category[] mysteryStrata;
+    private final ItemExclusions exclusions;
+    private final List<Item> items;
+
+    private AllowedItemSnapshot(long[] allowedBits, int[] itemIds, int totalItems, MysterySampler mysterySampler,
+                                ItemCategoryIndex categories, ItemCategoryIndex.Category[] mysteryStrata,
+                                ItemExclusions exclusions) {
+        this.allowedBits = allowedBits;
+        this.itemIds = itemIds;
+        this.totalItems = totalItems;
+        this.mysterySampler = mysterySampler;
+        this.categories = categories;
+        this.mysteryStrata = mysteryStrata;
+        this.exclusions = exclusions;
+
+        List<Item> items = new ArrayList<>(itemIds.length);
+        for (int itemId : itemIds) {
+            items.add(BuiltInRegistries.ITEM.byId(itemId));
+        }
+        this.items = Collections.unmodifiableList(items);
+    }
+
+    public static AllowedItemSnapshot current() {
+        return current;
+    }
+
+    static void publish(AllowedItemSnapshot snapshot) {
+        current = snapshot;
+    }
+
+    public boolean isBuilt() {
+        return this != NOT_BUILT;
+    }
+
+    public boolean contains(int itemId) {
+        int word = itemId >>> 6;
+        return itemId >= 0 && word < allowedBits.length && (allowedBits[word] & (1L << itemId)) != 0;
+    }
+
+    public boolean contains(Item item) {
+        return contains(BuiltInRegistries.ITEM.getId(item));
+    }
+
+    public int size() {
+        return itemIds.length;
+    }
+
+    public int getTotalItems() {
+        return totalItems;
+    }
+
+    /**
+     * Registry ids of the allowed items, dense and sorted. Do not modify.
+     */
+    public int[] itemIds() {
+        return itemIds;
+    }
+
+    public List<Item> items() {
+        return items;
+    }
+
+    public MysterySampler getMysterySampler() {
+        return mysterySampler;
+    }
+
+    /**
+     * The allowed items grouped by category.
+     */
+    public ItemCategoryIndex getCategories() {
+        return categories;
+    }
+
+    /**
+     * Categories a mystery package draws one item from each before the weighted draw. Do not modify.
+     */
+    public ItemCategoryIndex.Category[] getMysteryStrata() {
+        return mysteryStrata;
+    }
+
+    /**
+     * The exclusion rules this snapshot was filtered with. Null only on {@link #NOT_BUILT}.
+     */
+    public ItemExclusions getExclusions() {
+        return exclusions;
+    }
+
+    /**
+     * Filters the given items through the configured namespaces, tag blocklist and exclusion rules.
+     */
+    public static AllowedItemSnapshot build(Iterable<Item> source) {
+        ItemExclusions exclusions = ItemExclusions.compile();
+
+        long[] allowedBits = new long[(BuiltInRegistries.ITEM.size() + 63) >>> 6];
+        IntArrayList itemIds = new IntArrayList();
+        int totalItems = 0;
+
+        for (Item item : source) {
+            totalItems++;
+            int itemId = BuiltInRegistries.ITEM.getId(item);
+            if (itemId < 0 || (allowedBits[itemId >>> 6] & (1L << itemId)) != 0) {
+                continue;
+            }
+            if (exclusions.isExcluded(item)) {
+                continue;
+            }
+
+            allowedBits[itemId >>> 6] |= 1L << itemId;
+            itemIds.add(itemId);
+        }
+
+        int[] ids = itemIds.toIntArray();
+        Arrays.sort(ids);
+        return new AllowedItemSnapshot(allowedBits, ids, totalItems, buildMysterySampler(ids),
+                ItemCategoryIndex.build(ids), parseStrata(), exclusions);
+    }
+
+    private static ItemCategoryIndex.Category[] parseStrata() {
+        List<ItemCategoryIndex.Category> strata = new ArrayList<>();
+        for (String name : LootPackagesConfig.getMysteryStrata()) {
+            ItemCategoryIndex.Category category = ItemCategoryIndex.Category.byName(name);
+            if (category != null) {
+                strata.add(category);
+            }
+        }
+        return strata.toArray(new ItemCategoryIndex.Category[0]);
+    }
+
+    /**
+     * Builds the alias sampler for mystery packages from the allowed items and the configured weights
+     */
+    private static MysterySampler buildMysterySampler(int[] itemIds) {
+        double[] weights = new double[itemIds.length];
+        Arrays.fill(weights, 1.0);
+
+        for (String line : LootPackagesConfig.getMysteryItemWeights()) {
+            int separator = line.indexOf('=');
+            ResourceLocation location = ResourceLocation.tryParse(line.substring(0, separator).trim());
+            int index = location == null ? -1 : indexOf(itemIds, BuiltInRegistries.ITEM.getId(BuiltInRegistries.ITEM.get(location)));
+            if (index < 0) {
+                LootPackagesMod.LOGGER.warn("Ignoring mystery weight for unknown or excluded item: {}", line);
+                continue;
+            }
+            try {
+                double weight = Double.parseDouble(line.substring(separator + 1).trim());
+                if (weight < 0.0 || !Double.isFinite(weight)) {
+                    throw new NumberFormatException("weight must be a non-negative number");
+                }
+                weights[index] = weight;
+            } catch (NumberFormatException e) {
+                LootPackagesMod.LOGGER.warn("Ignoring invalid mystery weight '{}': {}", line, e.getMessage());
+            }
+        }
+
+        if (itemIds.length > 0 && Arrays.stream(weights).allMatch(weight -> weight == 0.0)) {
+            // The sampler leaves weight-0 items out, which would leave nothing to draw
+            LootPackagesMod.LOGGER.warn("Every mystery item has weight 0; ignoring the configured mystery weights");
+            Arrays.fill(weights, 1.0);
+        }
+        return new MysterySampler(itemIds, weights);
+    }
+
+    /**
+     * Index of a registry id in the sorted dense id array, or -1.
+     */
+    private static int indexOf(int[] itemIds, int itemId) {
+        int index = Arrays.binarySearch(itemIds, itemId);
+        return index >= 0 ? index : -1;
+    }
+}
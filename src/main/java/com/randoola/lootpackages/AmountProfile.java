@@ -0,0 +1,79 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.core.component.DataComponents;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.item.Item;
+
+/**
+ * How many of an item a random roll should hand out. Items are classified once, from their max stack size and
+ * the categories ItemCategoryIndex assigns them, and the resulting range is stored per registry id, so rolling
+ * an amount is one array read and at most one RNG draw.
+ */
+public enum AmountProfile {
+    // Unstackable items, which includes every tool, weapon and piece of armor
+    SINGLE(1, 1),
+    BUILDING_BLOCK(16, 64),
+    MATERIAL(4, 16),
+    FOOD(2, 12),
+    DEFAULT(1, 8);
+
+    private final int min;
+    private final int max;
+
+    // Packed (min << 8 | span) per item registry id, span already capped to the item's max stack size
+    private static volatile int[] packedRanges = new int[0];
+
+    AmountProfile(int min, int max) {
+        this.min = min;
+        this.max = max;
+    }
+
+    public static AmountProfile classify(Item item) {
+        if (item.components().getOrDefault(DataComponents.MAX_STACK_SIZE, 64) == 1) {
+            return SINGLE;
+        }
+
+        int categories = ItemCategoryIndex.categoriesOf(item);
+        if (ItemCategoryIndex.isIn(categories, ItemCategoryIndex.Category.FOOD)) {
+            return FOOD;
+        }
+        if (ItemCategoryIndex.isIn(categories, ItemCategoryIndex.Category.MATERIAL)) {
+            return MATERIAL;
+        }
+        if (ItemCategoryIndex.isIn(categories, ItemCategoryIndex.Category.BLOCK)) {
+            return BUILDING_BLOCK;
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * Classifies every registered item. Called whenever the item cache is (re)built.
+     */
+    public static void buildTable() {
+        int[] ranges = new int[BuiltInRegistries.ITEM.size()];
+
+        for (Item item : BuiltInRegistries.ITEM) {
+            AmountProfile profile = classify(item);
+            int maxStackSize = item.components().getOrDefault(DataComponents.MAX_STACK_SIZE, 64);
+            int min = Math.min(profile.min, maxStackSize);
+            int max = Math.min(profile.max, maxStackSize);
+            ranges[BuiltInRegistries.ITEM.getId(item)] = min << 8 | (max - min + 1);
+        }
+
+        packedRanges = ranges;
+    }
+
+    /**
+     * Rolls an amount for the item with the given registry id.
+     */
+    public static int rollAmount(int itemId, RandomSource random) {
+        int[] ranges = packedRanges;
+        if (itemId < 0 || itemId >= ranges.length) {
+            return 1;
+        }
+        int packed = ranges[itemId];
+        int span = packed & 0xFF;
+        return (packed >>> 8) + (span > 1 ? random.nextInt(span) : 0);
+    }
+}
@@ -0,0 +1,166 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.core.Holder;
+import net.minecraft.core.component.DataComponentMap;
+import net.minecraft.core.component.DataComponents;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.tags.ItemTags;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.item.ArmorItem;
+import net.minecraft.world.item.BlockItem;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemNameBlockItem;
+import net.minecraft.world.item.Rarity;
+import net.neoforged.neoforge.common.Tags;
+
+import java.util.Locale;
+
+/**
+ * The allowed items grouped by category, one dense registry-id array per category. Categories come from real
+ * item properties (data components, tags, item class, rarity, max stack size) rather than names, and an item
+ * can be in several. Built with each item snapshot, so picking a random item of a category is one array read.
+ */
+public final class ItemCategoryIndex {
+
+    public enum Category {
+        TOOL,
+        WEAPON,
+        ARMOR,
+        FOOD,
+        BLOCK,
+        MATERIAL,
+        RARE,
+        UNIQUE;
+
+        public String getSerializedName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * Looks a category up by its lowercase name, or returns null.
+         */
+        public static Category byName(String name) {
+            for (Category category : values()) {
+                if (category.getSerializedName().equals(name)) {
+                    return category;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static final Category[] CATEGORIES = Category.values();
+
+    public static final ItemCategoryIndex EMPTY = new ItemCategoryIndex(new int[CATEGORIES.length][0]);
+
+    private final int[][] itemIds;
+
+    private ItemCategoryIndex(int[][] itemIds) {
+        this.itemIds = itemIds;
+    }
+
+    /**
+     * Registry ids of the items in a category, sorted. Do not modify.
+     */
+    public int[] get(Category category) {
+        return itemIds[category.ordinal()];
+    }
+
+    public int size(Category category) {
+        return itemIds[category.ordinal()].length;
+    }
+
+    /**
+     * Picks a uniformly random item id from a category, or -1 if the category is empty.
+     */
+    public int pick(Category category, RandomSource random) {
+        int[] ids = itemIds[category.ordinal()];
+        return ids.length == 0 ? -1 : ids[random.nextInt(ids.length)];
+    }
+
+    /**
+     * Indexes the given items (registry ids, sorted). Two passes over the items: count, then fill.
+     */
+    public static ItemCategoryIndex build(int[] allowedIds) {
+        int[] masks = new int[allowedIds.length];
+        int[] sizes = new int[CATEGORIES.length];
+        for (int i = 0; i < allowedIds.length; i++) {
+            int mask = categoriesOf(BuiltInRegistries.ITEM.byId(allowedIds[i]));
+            masks[i] = mask;
+            for (Category category : CATEGORIES) {
+                if (isIn(mask, category)) {
+                    sizes[category.ordinal()]++;
+                }
+            }
+        }
+
+        int[][] itemIds = new int[CATEGORIES.length][];
+        for (Category category : CATEGORIES) {
+            itemIds[category.ordinal()] = new int[sizes[category.ordinal()]];
+        }
+        int[] filled = new int[CATEGORIES.length];
+        for (int i = 0; i < allowedIds.length; i++) {
+            for (Category category : CATEGORIES) {
+                if (isIn(masks[i], category)) {
+                    itemIds[category.ordinal()][filled[category.ordinal()]++] = allowedIds[i];
+                }
+            }
+        }
+        return new ItemCategoryIndex(itemIds);
+    }
+
+    /**
+     * The categories of an item as a bitmask over Category ordinals. This is the one place items are
+     * classified; AmountProfile derives its amount ranges from it too.
+     */
+    static int categoriesOf(Item item) {
+        DataComponentMap components = item.components();
+        Holder<Item> holder = BuiltInRegistries.ITEM.wrapAsHolder(item);
+        int mask = 0;
+
+        boolean weapon = holder.is(ItemTags.SWORDS) || holder.is(Tags.Items.MELEE_WEAPON_TOOLS)
+                || holder.is(Tags.Items.RANGED_WEAPON_TOOLS);
+        boolean tool = holder.is(Tags.Items.MINING_TOOL_TOOLS) || holder.is(ItemTags.PICKAXES)
+                || holder.is(ItemTags.AXES) || holder.is(ItemTags.SHOVELS) || holder.is(ItemTags.HOES)
+                || (components.has(DataComponents.TOOL) && !weapon);
+        boolean armor = item instanceof ArmorItem || holder.is(Tags.Items.ARMORS);
+
+        if (tool) {
+            mask |= bit(Category.TOOL);
+        }
+        if (weapon) {
+            mask |= bit(Category.WEAPON);
+        }
+        if (armor) {
+            mask |= bit(Category.ARMOR);
+        }
+        if (components.has(DataComponents.FOOD)) {
+            mask |= bit(Category.FOOD);
+        }
+        // Seeds, crops and similar place a block but are not building material
+        if (item instanceof BlockItem && !(item instanceof ItemNameBlockItem)) {
+            mask |= bit(Category.BLOCK);
+        }
+        if (holder.is(Tags.Items.INGOTS) || holder.is(Tags.Items.GEMS) || holder.is(Tags.Items.NUGGETS)
+                || holder.is(Tags.Items.DUSTS)) {
+            mask |= bit(Category.MATERIAL);
+        }
+        Rarity rarity = components.getOrDefault(DataComponents.RARITY, Rarity.COMMON);
+        if (rarity == Rarity.RARE || rarity == Rarity.EPIC) {
+            mask |= bit(Category.RARE);
+        }
+        // Unstackable items that are not gear: totems, music discs, buckets of fish and the like
+        if (components.getOrDefault(DataComponents.MAX_STACK_SIZE, 64) == 1 && !tool && !weapon && !armor) {
+            mask |= bit(Category.UNIQUE);
+        }
+        return mask;
+    }
+
+    static boolean isIn(int categories, Category category) {
+        return (categories & bit(category)) != 0;
+    }
+
+    private static int bit(Category category) {
+        return 1 << category.ordinal();
+    }
+}
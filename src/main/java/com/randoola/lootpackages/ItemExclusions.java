@@ -0,0 +1,263 @@
+package com.randoola.lootpackages;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.core.Holder;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.TagKey;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.Items;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The configured item exclusions compiled into one matcher: registry-id bitsets for explicit items and tags,
+ * an Aho-Corasick automaton for path keywords and a single alternation regex for globs and regexes.
+ * Checking an item is a couple of bit tests and one pass over its id. Regexes that cannot be combined (a
+ * group name used twice, numbered backreferences) make it fall back to matching each pattern on its own.
+ */
+public final class ItemExclusions {
+
+    private final Set<String> includedNamespaces;
+    private final Set<String> excludedNamespaces;
+    private final long[] excludedItemBits;
+    private final long[] taggedItemBits;
+    private final List<TagKey<Item>> excludedTags;
+    private final KeywordMatcher keywords;
+    private final Pattern patterns;
+    // Set instead of patterns when the sources could not be combined
+    private final List<Pattern> separatePatterns;
+    private final List<String> patternSources;
+    private final int[] patternGroups;
+
+    private ItemExclusions(Set<String> includedNamespaces, Set<String> excludedNamespaces, long[] excludedItemBits,
+                           long[] taggedItemBits, List<TagKey<Item>> excludedTags, KeywordMatcher keywords,
+                           Pattern patterns, List<Pattern> separatePatterns, List<String> patternSources,
+                           int[] patternGroups) {
+        this.includedNamespaces = includedNamespaces;
+        this.excludedNamespaces = excludedNamespaces;
+        this.excludedItemBits = excludedItemBits;
+        this.taggedItemBits = taggedItemBits;
+        this.excludedTags = excludedTags;
+        this.keywords = keywords;
+        this.patterns = patterns;
+        this.separatePatterns = separatePatterns;
+        this.patternSources = patternSources;
+        this.patternGroups = patternGroups;
+    }
+
+    public boolean isExcluded(Item item) {
+        return explain(item) != null;
+    }
+
+    /**
+     * Explains why an item is excluded, or returns null if it is allowed.
+     */
+    public String explain(Item item) {
+        if (item == Items.AIR) {
+            return "air is never allowed";
+        }
+
+        int itemId = BuiltInRegistries.ITEM.getId(item);
+        ResourceLocation location = BuiltInRegistries.ITEM.getKey(item);
+        String namespace = location.getNamespace();
+
+        if (!includedNamespaces.isEmpty() && !includedNamespaces.contains(namespace)) {
+            return "namespace '" + namespace + "' is not in includeNamespaces";
+        }
+        if (excludedNamespaces.contains(namespace)) {
+            return "namespace '" + namespace + "' is in excludeNamespaces";
+        }
+        if (isSet(excludedItemBits, itemId)) {
+            return "listed in excludeItems";
+        }
+        if (isSet(taggedItemBits, itemId)) {
+            return "in tag #" + findTag(item);
+        }
+
+        String keyword = keywords.findAny(location.getPath());
+        if (keyword != null) {
+            return "path contains keyword '" + keyword + "'";
+        }
+
+        if (patterns != null) {
+            Matcher matcher = patterns.matcher(location.toString());
+            if (matcher.find()) {
+                for (int i = 0; i < patternGroups.length; i++) {
+                    if (matcher.group(patternGroups[i]) != null) {
+                        return "matches " + patternSources.get(i);
+                    }
+                }
+                return "matches an exclusion pattern";
+            }
+        } else {
+            for (int i = 0; i < separatePatterns.size(); i++) {
+                if (separatePatterns.get(i).matcher(location.toString()).find()) {
+                    return "matches " + patternSources.get(i);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private String findTag(Item item) {
+        Holder<Item> holder = BuiltInRegistries.ITEM.wrapAsHolder(item);
+        for (TagKey<Item> tag : excludedTags) {
+            if (holder.is(tag)) {
+                return tag.location().toString();
+            }
+        }
+        return "?";
+    }
+
+    /**
+     * Compiles the current config. Tag bitsets are only populated once tags are bound.
+     */
+    public static ItemExclusions compile() {
+        int registrySize = BuiltInRegistries.ITEM.size();
+
+        long[] excludedItemBits = new long[(registrySize + 63) >>> 6];
+        for (String id : LootPackagesConfig.getExcludedItems()) {
+            ResourceLocation location = ResourceLocation.tryParse(id);
+            if (location == null || !BuiltInRegistries.ITEM.containsKey(location)) {
+                LootPackagesMod.LOGGER.debug("Ignoring unknown excluded item: {}", id);
+                continue;
+            }
+            set(excludedItemBits, BuiltInRegistries.ITEM.getId(BuiltInRegistries.ITEM.get(location)));
+        }
+
+        long[] taggedItemBits = new long[(registrySize + 63) >>> 6];
+        List<TagKey<Item>> excludedTags = new ArrayList<>();
+        for (String tag : LootPackagesConfig.getExcludedItemTags()) {
+            ResourceLocation location = ResourceLocation.tryParse(tag.startsWith("#") ? tag.substring(1) : tag);
+            if (location == null) {
+                LootPackagesMod.LOGGER.warn("Ignoring invalid excluded item tag: {}", tag);
+                continue;
+            }
+            TagKey<Item> tagKey = TagKey.create(Registries.ITEM, location);
+            excludedTags.add(tagKey);
+            for (Holder<Item> holder : BuiltInRegistries.ITEM.getTagOrEmpty(tagKey)) {
+                set(taggedItemBits, BuiltInRegistries.ITEM.getId(holder.value()));
+            }
+        }
+
+        List<String> keywords = new ArrayList<>();
+        for (String keyword : LootPackagesConfig.getExcludedKeywords()) {
+            keywords.add(keyword.toLowerCase(Locale.ROOT));
+        }
+
+        // Globs and regexes become one alternation with a capturing group per source, so a single find()
+        // tests all of them and the matching group names the rule for explain()
+        List<String> patternSources = new ArrayList<>();
+        List<Pattern> separatePatterns = new ArrayList<>();
+        IntArrayList patternGroups = new IntArrayList();
+        StringBuilder combined = new StringBuilder();
+        int groupCount = 0;
+        for (String glob : LootPackagesConfig.getExcludedGlobs()) {
+            groupCount += appendAlternative(combined, patternSources, separatePatterns, patternGroups, groupCount,
+                    "^" + globToRegex(glob) + "$", "glob '" + glob + "'");
+        }
+        for (String regex : LootPackagesConfig.getExcludedRegexes()) {
+            groupCount += appendAlternative(combined, patternSources, separatePatterns, patternGroups, groupCount,
+                    regex, "regex '" + regex + "'");
+        }
+
+        Pattern patterns = null;
+        if (!patternSources.isEmpty() && separatePatterns.stream().noneMatch(pattern -> hasNumberedBackreference(pattern.pattern()))) {
+            try {
+                patterns = Pattern.compile(combined.toString());
+            } catch (PatternSyntaxException e) {
+                // Valid on their own but not together, e.g. the same group name in two regexes
+                LootPackagesMod.LOGGER.warn("Exclusion patterns cannot be combined, matching them one by one: {}", e.getDescription());
+            }
+        }
+
+        return new ItemExclusions(new HashSet<>(LootPackagesConfig.getIncludedNamespaces()),
+                new HashSet<>(LootPackagesConfig.getExcludedNamespaces()), excludedItemBits, taggedItemBits,
+                excludedTags, KeywordMatcher.compile(keywords), patterns, patterns == null ? List.copyOf(separatePatterns) : List.of(),
+                patternSources, patternGroups.toIntArray());
+    }
+
+    /**
+     * Appends one source as its own group and returns how many groups it added, counting any the source
+     * itself contains, so the next source's group number stays right.
+     */
+    private static int appendAlternative(StringBuilder combined, List<String> sources, List<Pattern> separate,
+                                         IntArrayList groups, int groupCount, String regex, String description) {
+        Pattern pattern;
+        try {
+            // Validate on its own first so one bad entry cannot break the combined pattern
+            pattern = Pattern.compile(regex);
+        } catch (PatternSyntaxException e) {
+            LootPackagesMod.LOGGER.warn("Ignoring invalid exclusion {}: {}", description, e.getDescription());
+            return 0;
+        }
+
+        if (!sources.isEmpty()) {
+            combined.append('|');
+        }
+        combined.append('(').append(regex).append(')');
+        sources.add(description);
+        separate.add(pattern);
+        groups.add(groupCount + 1);
+        return 1 + pattern.matcher("").groupCount();
+    }
+
+    /**
+     * Whether the regex contains a numbered backreference (\1 and up), which would point at the wrong group once
+     * the regex is wrapped and shifted inside the combined pattern. Errs towards true, which only costs the
+     * combined match.
+     */
+    private static boolean hasNumberedBackreference(String regex) {
+        for (int i = 0; i + 1 < regex.length(); i++) {
+            if (regex.charAt(i) == '\\') {
+                char next = regex.charAt(i + 1);
+                if (next >= '1' && next <= '9') {
+                    return true;
+                }
+                // Skip the escaped character, so \\1 (a literal backslash and 1) is not counted
+                i++;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Translates a glob over the full item id ("minecraft:*_spawn_egg") into a regex; * and ? do not cross ':'.
+     */
+    static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            switch (c) {
+                case '*' -> regex.append("[^:]*");
+                case '?' -> regex.append("[^:]");
+                default -> {
+                    if ("\\.[]{}()+-^$|".indexOf(c) >= 0) {
+                        regex.append('\\');
+                    }
+                    regex.append(c);
+                }
+            }
+        }
+        return regex.toString();
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        int word = index >>> 6;
+        return index >= 0 && word < bits.length && (bits[word] & (1L << index)) != 0;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+}
@@ -0,0 +1,149 @@
+package com.randoola.lootpackages;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton that finds any of a fixed set of keywords in a string with a single left-to-right
+ * pass, however many keywords there are. The automaton is compiled into a dense transition table over the
+ * characters that occur in the keywords; every other character maps to one shared column.
+ */
+public final class KeywordMatcher {
+
+    private static final int NO_MATCH = -1;
+
+    private final String[] keywords;
+    private final int[] alphabet;
+    private final int alphabetSize;
+    private final int[] transitions;
+    private final int[] outputs;
+
+    private KeywordMatcher(String[] keywords, int[] alphabet, int alphabetSize, int[] transitions, int[] outputs) {
+        this.keywords = keywords;
+        this.alphabet = alphabet;
+        this.alphabetSize = alphabetSize;
+        this.transitions = transitions;
+        this.outputs = outputs;
+    }
+
+    /**
+     * Returns the first keyword (by end position) contained in the text, or null if none is.
+     */
+    public String findAny(String text) {
+        if (keywords.length == 0) {
+            return null;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int column = c < alphabet.length ? alphabet[c] : 0;
+            state = transitions[state * alphabetSize + column];
+            if (outputs[state] != NO_MATCH) {
+                return keywords[outputs[state]];
+            }
+        }
+        return null;
+    }
+
+    public boolean matches(String text) {
+        return findAny(text) != null;
+    }
+
+    public static KeywordMatcher compile(List<String> keywordList) {
+        List<String> keywords = new ArrayList<>();
+        for (String keyword : keywordList) {
+            if (!keyword.isEmpty()) {
+                keywords.add(keyword);
+            }
+        }
+
+        // Column 0 is shared by every character that no keyword uses
+        int maxChar = 0;
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                maxChar = Math.max(maxChar, keyword.charAt(i));
+            }
+        }
+        int[] alphabet = new int[maxChar + 1];
+        int alphabetSize = 1;
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                if (alphabet[c] == 0) {
+                    alphabet[c] = alphabetSize++;
+                }
+            }
+        }
+
+        // Trie, with -1 marking a missing edge
+        List<int[]> edges = new ArrayList<>();
+        IntArrayList outputs = new IntArrayList();
+        edges.add(newRow(alphabetSize));
+        outputs.add(NO_MATCH);
+
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            int node = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int column = alphabet[keyword.charAt(i)];
+                if (edges.get(node)[column] == -1) {
+                    edges.get(node)[column] = edges.size();
+                    edges.add(newRow(alphabetSize));
+                    outputs.add(NO_MATCH);
+                }
+                node = edges.get(node)[column];
+            }
+            if (outputs.getInt(node) == NO_MATCH) {
+                outputs.set(node, k);
+            }
+        }
+
+        // Breadth-first: resolve failure links and fill the missing edges into a full DFA
+        int states = edges.size();
+        int[] transitions = new int[states * alphabetSize];
+        int[] fail = new int[states];
+        int[] queue = new int[states];
+        int head = 0;
+        int tail = 0;
+
+        for (int column = 0; column < alphabetSize; column++) {
+            int child = edges.get(0)[column];
+            if (child == -1) {
+                transitions[column] = 0;
+            } else {
+                transitions[column] = child;
+                fail[child] = 0;
+                queue[tail++] = child;
+            }
+        }
+
+        while (head < tail) {
+            int node = queue[head++];
+            if (outputs.getInt(node) == NO_MATCH) {
+                outputs.set(node, outputs.getInt(fail[node]));
+            }
+            for (int column = 0; column < alphabetSize; column++) {
+                int child = edges.get(node)[column];
+                int fallback = transitions[fail[node] * alphabetSize + column];
+                if (child == -1) {
+                    transitions[node * alphabetSize + column] = fallback;
+                } else {
+                    transitions[node * alphabetSize + column] = child;
+                    fail[child] = fallback;
+                    queue[tail++] = child;
+                }
+            }
+        }
+
+        return new KeywordMatcher(keywords.toArray(new String[0]), alphabet, alphabetSize, transitions, outputs.toIntArray());
+    }
+
+    private static int[] newRow(int size) {
+        int[] row = new int[size];
+        Arrays.fill(row, -1);
+        return row;
+    }
+}
@@ -0,0 +1,61 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.network.chat.Component;
+import net.minecraft.world.InteractionHand;
+import net.minecraft.world.InteractionResultHolder;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.player.Inventory;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
+
+/**
+ * One of the per-type package items from before package types were data-driven. Nothing creates them any more;
+ * they stay registered so stacks in existing worlds load, and turn into lootpackages:package stacks of their
+ * type (keeping count and components, including sealed contents) as soon as a player holds or uses them.
+ */
+public class LegacyPackageItem extends Item {
+
+    private final LootPackagesMod.PackageType packageType;
+
+    public LegacyPackageItem(LootPackagesMod.PackageType packageType) {
+        super(new Item.Properties().stacksTo(16));
+        this.packageType = packageType;
+    }
+
+    /**
+     * The package stack this legacy stack converts to.
+     */
+    public ItemStack convert(ItemStack stack) {
+        ItemStack converted = stack.transmuteCopy(LootPackagesMod.PACKAGE.get(), stack.getCount());
+        converted.set(LootPackagesMod.PACKAGE_TYPE.get(), packageType);
+        return converted;
+    }
+
+    @Override
+    public void inventoryTick(ItemStack stack, Level level, Entity entity, int slotId, boolean isSelected) {
+        if (level.isClientSide || !(entity instanceof Player player)) {
+            return;
+        }
+        // slotId is relative to the armor or offhand compartment for those, so look the stack up instead
+        Inventory inventory = player.getInventory();
+        for (int slot = 0; slot < inventory.getContainerSize(); slot++) {
+            if (inventory.getItem(slot) == stack) {
+                inventory.setItem(slot, convert(stack));
+                return;
+            }
+        }
+    }
+
+    @Override
+    public InteractionResultHolder<ItemStack> use(Level level, Player player, InteractionHand hand) {
+        // The returned stack replaces the one in hand
+        return InteractionResultHolder.sidedSuccess(convert(player.getItemInHand(hand)), level.isClientSide);
+    }
+
+    @Override
+    public Component getName(ItemStack stack) {
+        return PackageDisplays.get(packageType).name();
+    }
+}
@@ -0,0 +1,181 @@
+package com.randoola.lootpackages;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Growable buffer of rolled loot stored as flat primitive columns (item registry id, count, damage).
+ * Package generators write into this instead of building ItemStack lists, so a roll allocates nothing
+ * until the stacks are actually handed to the player.
+ *
+ * Stacks carrying components (from vanilla loot functions such as enchant_randomly or set_potion) do not fit
+ * the columns and are kept as ItemStacks next to them; size() and the column getters only cover the columns.
+ */
+public class LootBuffer {
+
+    public static final int NO_DAMAGE = -1;
+
+    private int[] items;
+    private int[] counts;
+    private int[] damages;
+    private int size;
+    // Created on the first stack with components
+    private List<ItemStack> stacks;
+
+    public LootBuffer() {
+        this(16);
+    }
+
+    public LootBuffer(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        this.items = new int[capacity];
+        this.counts = new int[capacity];
+        this.damages = new int[capacity];
+    }
+
+    public void add(int itemId, int count) {
+        add(itemId, count, NO_DAMAGE);
+    }
+
+    public void add(int itemId, int count, int damage) {
+        if (size == items.length) {
+            int newCapacity = size * 2;
+            items = Arrays.copyOf(items, newCapacity);
+            counts = Arrays.copyOf(counts, newCapacity);
+            damages = Arrays.copyOf(damages, newCapacity);
+        }
+        items[size] = itemId;
+        counts[size] = count;
+        damages[size] = damage;
+        size++;
+    }
+
+    /**
+     * Adds a stack produced elsewhere, such as by a vanilla loot table. Plain stacks go into the columns.
+     */
+    public void add(ItemStack stack) {
+        if (stack.isEmpty()) {
+            return;
+        }
+        if (stack.isComponentsPatchEmpty()) {
+            add(BuiltInRegistries.ITEM.getId(stack.getItem()), stack.getCount());
+            return;
+        }
+        if (stacks == null) {
+            stacks = new ArrayList<>();
+        }
+        stacks.add(stack);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0 && (stacks == null || stacks.isEmpty());
+    }
+
+    /**
+     * The stacks with components, in the order they were added.
+     */
+    public List<ItemStack> stacks() {
+        return stacks != null ? stacks : List.of();
+    }
+
+    public int itemId(int index) {
+        return items[index];
+    }
+
+    public int count(int index) {
+        return counts[index];
+    }
+
+    public int damage(int index) {
+        return damages[index];
+    }
+
+    public void clear() {
+        size = 0;
+        if (stacks != null) {
+            stacks.clear();
+        }
+    }
+
+    /**
+     * Materializes the entry at the given index as an ItemStack.
+     */
+    public ItemStack createStack(int index) {
+        ItemStack stack = new ItemStack(BuiltInRegistries.ITEM.byId(items[index]), counts[index]);
+        if (damages[index] != NO_DAMAGE) {
+            stack.setDamageValue(damages[index]);
+        }
+        return stack;
+    }
+
+    /**
+     * Merges entries of the same undamaged item into one entry, keeping first-seen order.
+     * Runs in O(size) and leaves one entry per distinct item. Stacks with components are left as they are.
+     */
+    public void coalesce() {
+        if (size < 2) {
+            return;
+        }
+
+        Int2IntOpenHashMap firstIndex = new Int2IntOpenHashMap(size);
+        firstIndex.defaultReturnValue(-1);
+        int write = 0;
+
+        for (int read = 0; read < size; read++) {
+            if (damages[read] == NO_DAMAGE) {
+                int existing = firstIndex.putIfAbsent(items[read], write);
+                if (existing != -1) {
+                    counts[existing] += counts[read];
+                    continue;
+                }
+            }
+            items[write] = items[read];
+            counts[write] = counts[read];
+            damages[write] = damages[read];
+            write++;
+        }
+
+        size = write;
+    }
+
+    /**
+     * Materializes every entry as ItemStacks, splitting counts above the item's max stack size into full stacks.
+     *
+     * @return the number of stacks produced
+     */
+    public int forEachStack(Consumer<ItemStack> consumer) {
+        int produced = 0;
+        for (int i = 0; i < size; i++) {
+            ItemStack stack = createStack(i);
+            int maxStackSize = stack.getMaxStackSize();
+            int remaining = stack.getCount();
+
+            while (remaining > maxStackSize) {
+                consumer.accept(stack.copyWithCount(maxStackSize));
+                remaining -= maxStackSize;
+                produced++;
+            }
+            stack.setCount(remaining);
+            consumer.accept(stack);
+            produced++;
+        }
+        for (ItemStack stack : stacks()) {
+            int maxStackSize = stack.getMaxStackSize();
+            for (int remaining = stack.getCount(); remaining > 0; remaining -= maxStackSize) {
+                consumer.accept(stack.copyWithCount(Math.min(remaining, maxStackSize)));
+                produced++;
+            }
+        }
+        return produced;
+    }
+}
@@ -0,0 +1,108 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hands rolled loot to a player. Loot is coalesced before insertion and whatever does not fit goes to the
+ * configured overflow sink, so a full inventory costs O(1) item entities per open instead of one per stack.
+ */
+public class LootDelivery {
+
+    public enum OverflowMode {
+        /** Pack leftovers into a single overflow package item */
+        PACKAGE,
+        /** Store leftovers in the player's server-side mailbox, claimed with /lootpackages claim */
+        MAILBOX,
+        /** Drop leftovers as item entities, up to the configured cap; the rest is packed into an overflow package */
+        DROP
+    }
+
+    /**
+     * @param stacks          stacks produced by the roll after merging
+     * @param overflowStacks  stacks that did not fit into the inventory
+     * @param spawnedEntities item entities spawned in the world
+     */
+    public record Result(int stacks, int overflowStacks, int spawnedEntities) {
+    }
+
+    /**
+     * Coalesces the buffer and inserts it into the player's inventory, routing leftovers to the overflow sink.
+     */
+    public static Result deliver(ServerPlayer player, LootBuffer loot) {
+        loot.coalesce();
+
+        List<ItemStack> overflow = new ArrayList<>();
+        int stacks = loot.forEachStack(stack -> {
+            // Inventory#add reports success on partial inserts, so check what is left instead
+            player.getInventory().add(stack);
+            if (!stack.isEmpty()) {
+                overflow.add(stack);
+            }
+        });
+
+        if (overflow.isEmpty()) {
+            return new Result(stacks, 0, 0);
+        }
+
+        int spawnedEntities = handleOverflow(player, overflow);
+        return new Result(stacks, overflow.size(), spawnedEntities);
+    }
+
+    /**
+     * Routes stacks that did not fit to the configured sink.
+     *
+     * @return the number of item entities spawned
+     */
+    public static int handleOverflow(ServerPlayer player, List<ItemStack> overflow) {
+        switch (LootPackagesConfig.getOverflowMode()) {
+            case MAILBOX -> {
+                List<ItemStack> rejected = OverflowMailbox.get(player.server).deposit(player.getUUID(), overflow);
+                int stored = overflow.size() - rejected.size();
+                if (stored > 0) {
+                    player.sendSystemMessage(Component.translatable("message.lootpackages.mailbox", stored)
+                            .withStyle(ChatFormatting.YELLOW));
+                }
+                return rejected.isEmpty() ? 0 : dropAsPackages(player, rejected);
+            }
+            case DROP -> {
+                int limit = LootPackagesConfig.getMaxDroppedStacks();
+                if (overflow.size() <= limit) {
+                    overflow.forEach(stack -> player.drop(stack, false));
+                    return overflow.size();
+                }
+                // Keep the entity count bounded: the last slot carries everything else as one package
+                for (int i = 0; i < limit - 1; i++) {
+                    player.drop(overflow.get(i), false);
+                }
+                return limit - 1 + dropAsPackages(player, overflow.subList(limit - 1, overflow.size()));
+            }
+            default -> {
+                return dropAsPackages(player, overflow);
+            }
+        }
+    }
+
+    /**
+     * Packs the stacks into overflow packages, giving them to the player if possible and dropping them otherwise.
+     *
+     * @return the number of item entities spawned
+     */
+    static int dropAsPackages(ServerPlayer player, List<ItemStack> stacks) {
+        int spawned = 0;
+        for (int start = 0; start < stacks.size(); start += OverflowPackageItem.CAPACITY) {
+            List<ItemStack> chunk = stacks.subList(start, Math.min(stacks.size(), start + OverflowPackageItem.CAPACITY));
+            ItemStack overflowPackage = OverflowPackageItem.pack(chunk);
+            if (!player.getInventory().add(overflowPackage)) {
+                player.drop(overflowPackage, false);
+                spawned++;
+            }
+        }
+        return spawned;
+    }
+}
@@ -0,0 +1,206 @@
+package com.randoola.lootpackages;
+
+import com.mojang.authlib.GameProfile;
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import net.minecraft.ChatFormatting;
+import net.minecraft.commands.CommandBuildContext;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.SharedSuggestionProvider;
+import net.minecraft.commands.arguments.EntityArgument;
+import net.minecraft.commands.arguments.ResourceLocationArgument;
+import net.minecraft.commands.arguments.item.ItemArgument;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.MutableComponent;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.server.players.GameProfileCache;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * The /lootpackages command tree.
+ */
+public class LootPackagesCommands {
+
+    private static final int MAX_LISTED_RECIPIENTS = 20;
+
+    public static void register(CommandDispatcher<CommandSourceStack> dispatcher, CommandBuildContext buildContext) {
+        dispatcher.register(Commands.literal(LootPackagesMod.MODID)
+                .then(Commands.literal("claim")
+                        .executes(context -> claimMailbox(context.getSource())))
+                .then(Commands.literal("stats")
+                        .requires(source -> source.hasPermission(Commands.LEVEL_GAMEMASTERS))
+                        .executes(context -> showStats(context.getSource()))
+                        .then(Commands.literal("reset")
+                                .executes(context -> resetStats(context.getSource()))))
+                .then(Commands.literal("give")
+                        .requires(source -> source.hasPermission(Commands.LEVEL_GAMEMASTERS))
+                        .then(Commands.argument("targets", EntityArgument.players())
+                                .then(Commands.argument("package", ResourceLocationArgument.id())
+                                        .suggests((context, builder) -> SharedSuggestionProvider.suggestResource(
+                                                PackageLootTables.types().stream().map(LootPackagesMod.PackageType::getId), builder))
+                                        .executes(context -> givePackages(context.getSource(),
+                                                EntityArgument.getPlayers(context, "targets"),
+                                                ResourceLocationArgument.getId(context, "package"), 1))
+                                        .then(Commands.argument("count", IntegerArgumentType.integer(1, 64))
+                                                .executes(context -> givePackages(context.getSource(),
+                                                        EntityArgument.getPlayers(context, "targets"),
+                                                        ResourceLocationArgument.getId(context, "package"),
+                                                        IntegerArgumentType.getInteger(context, "count")))))))
+                .then(Commands.literal("recipients")
+                        .requires(source -> source.hasPermission(Commands.LEVEL_GAMEMASTERS))
+                        .executes(context -> showRecipients(context.getSource())))
+                .then(Commands.literal("why")
+                        .requires(source -> source.hasPermission(Commands.LEVEL_GAMEMASTERS))
+                        .then(Commands.argument("item", ItemArgument.item(buildContext))
+                                .executes(context -> explainItem(context.getSource(),
+                                        ItemArgument.getItem(context, "item").getItem())))));
+    }
+
+    /**
+     * Gives packages like /give, but sealed one by one when sealing is enabled.
+     */
+    private static int givePackages(CommandSourceStack source, Collection<ServerPlayer> targets, ResourceLocation id, int count) {
+        LootPackagesMod.PackageType packageType = LootPackagesMod.PackageType.byName(id.toString());
+        if (packageType == null && id.getNamespace().equals(ResourceLocation.DEFAULT_NAMESPACE)) {
+            // A bare name like "treasure" parses into the minecraft namespace; treat it as one of ours
+            packageType = LootPackagesMod.PackageType.byName(id.getPath());
+        }
+        if (packageType == null) {
+            source.sendFailure(Component.literal("Unknown package type: " + id));
+            return 0;
+        }
+        LootPackagesMod.PackageType given = packageType;
+
+        for (ServerPlayer player : targets) {
+            if (LootPackagesConfig.shouldSealContents()) {
+                for (int i = 0; i < count; i++) {
+                    giveOrDrop(player, SealedContents.sealIfEnabled(PackageItem.create(given),
+                            player.getRandom().nextLong(), player.serverLevel(), player.position(), player));
+                }
+            } else {
+                giveOrDrop(player, PackageItem.create(given, count));
+            }
+        }
+
+        source.sendSuccess(() -> Component.literal("Gave " + count + "x ")
+                .append(PackageDisplays.get(given).name())
+                .append(" to " + targets.size() + " player(s)"), true);
+        return targets.size();
+    }
+
+    private static void giveOrDrop(ServerPlayer player, ItemStack stack) {
+        player.getInventory().add(stack);
+        if (!stack.isEmpty()) {
+            player.drop(stack, false);
+        }
+    }
+
+    private static int explainItem(CommandSourceStack source, Item item) {
+        AllowedItemSnapshot snapshot = LootPackagesMod.getItemSnapshot();
+        String itemId = BuiltInRegistries.ITEM.getKey(item).toString();
+        String reason = snapshot.getExclusions().explain(item);
+
+        if (reason == null) {
+            boolean pooled = snapshot.contains(item);
+            source.sendSuccess(() -> Component.literal(itemId + " is allowed"
+                    + (pooled ? "" : " but not in the current item pool")).withStyle(ChatFormatting.GREEN), false);
+            return 1;
+        }
+        source.sendSuccess(() -> Component.literal(itemId + " is excluded: " + reason).withStyle(ChatFormatting.RED), false);
+        return 0;
+    }
+
+    private static int showStats(CommandSourceStack source) {
+        source.sendSuccess(() -> Component.literal("Loot package stats").withStyle(ChatFormatting.GOLD), false);
+        for (LootPackagesMod.PackageType packageType : PackageLootTables.types()) {
+            long opens = PackageMetrics.getOpens(packageType);
+            if (opens > 0) {
+                source.sendSuccess(() -> Component.literal("  " + packageType + ": " + opens), false);
+            }
+        }
+        source.sendSuccess(() -> Component.literal("Opened: " + PackageMetrics.getTotalOpens()
+                + ", stacks granted: " + PackageMetrics.getStacksGranted()
+                + ", overflowed: " + PackageMetrics.getOverflowStacks()
+                + " (" + PackageMetrics.getOverflowEntities() + " entities)"), false);
+        source.sendSuccess(() -> Component.literal("Queued opens: " + PackageOpenQueue.size()
+                + ", pre-rolled hits: " + PreRolledLoot.getHits() + ", misses: " + PreRolledLoot.getMisses()), false);
+        source.sendSuccess(() -> Component.literal("Generation: " + PackageMetrics.describe(PackageMetrics.GENERATION_TIME)), false);
+        source.sendSuccess(() -> Component.literal("Insertion: " + PackageMetrics.describe(PackageMetrics.INSERTION_TIME)), false);
+        return (int) Math.min(Integer.MAX_VALUE, PackageMetrics.getTotalOpens());
+    }
+
+    /**
+     * Lists who received the starter package, from the recipient index rather than the player files.
+     */
+    private static int showRecipients(CommandSourceStack source) {
+        Set<UUID> recipients = PackageRecipients.get(source.getServer()).getRecipients(PlayerPackageData.STARTER_GRANT);
+        GameProfileCache profiles = source.getServer().getProfileCache();
+        String names = recipients.stream()
+                .limit(MAX_LISTED_RECIPIENTS)
+                .map(uuid -> profiles == null ? uuid.toString()
+                        : profiles.get(uuid).map(GameProfile::getName).orElse(uuid.toString()))
+                .collect(Collectors.joining(", "));
+        source.sendSuccess(() -> Component.literal(recipients.size() + " player(s) received a starter package"
+                + (recipients.isEmpty() ? "" : ": " + names)
+                + (recipients.size() > MAX_LISTED_RECIPIENTS ? ", ..." : "")), false);
+        source.sendSuccess(() -> Component.literal("Starter grants waiting: " + StarterGrantQueue.size()), false);
+        return recipients.size();
+    }
+
+    private static int resetStats(CommandSourceStack source) {
+        PackageMetrics.reset();
+        PreRolledLoot.resetStats();
+        source.sendSuccess(() -> Component.literal("Loot package stats reset"), true);
+        return 1;
+    }
+
+    private static int claimMailbox(CommandSourceStack source) throws CommandSyntaxException {
+        ServerPlayer player = source.getPlayerOrException();
+        OverflowMailbox mailbox = OverflowMailbox.get(source.getServer());
+        List<ItemStack> stored = mailbox.takeAll(player.getUUID());
+
+        if (stored.isEmpty()) {
+            source.sendFailure(Component.translatable("message.lootpackages.mailbox_empty"));
+            return 0;
+        }
+
+        List<ItemStack> leftovers = new ArrayList<>();
+        for (ItemStack stack : stored) {
+            player.getInventory().add(stack);
+            if (!stack.isEmpty()) {
+                leftovers.add(stack);
+            }
+        }
+        // Put back what still does not fit instead of dropping it; if the capacity was lowered since the stacks
+        // were stored, the rest is packed into overflow packages rather than lost
+        List<ItemStack> rejected = mailbox.deposit(player.getUUID(), leftovers);
+        int waiting = leftovers.size() - rejected.size();
+        int packed = rejected.size();
+        if (packed > 0) {
+            LootDelivery.dropAsPackages(player, new ArrayList<>(rejected));
+        }
+
+        int claimed = stored.size() - leftovers.size();
+        MutableComponent message = Component.translatable("message.lootpackages.mailbox_claimed", claimed);
+        if (waiting > 0) {
+            message.append(Component.translatable("message.lootpackages.mailbox_waiting", waiting));
+        }
+        if (packed > 0) {
+            message.append(Component.translatable("message.lootpackages.mailbox_packed", packed));
+        }
+        source.sendSuccess(() -> message.withStyle(ChatFormatting.GREEN), false);
+        return claimed;
+    }
+}
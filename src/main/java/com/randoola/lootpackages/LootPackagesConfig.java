@@ -1,12 +1,63 @@
 package com.randoola.lootpackages;
 
+import net.minecraft.resources.ResourceLocation;
 import net.neoforged.neoforge.common.ModConfigSpec;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
 public class LootPackagesConfig {
 
     private static final ModConfigSpec.Builder BUILDER = new ModConfigSpec.Builder();
 
     public static final ModConfigSpec.BooleanValue GIVE_STARTER_PACKAGE;
+    public static final ModConfigSpec.IntValue STARTER_GRANT_DELAY_TICKS;
+    public static final ModConfigSpec.IntValue STARTER_GRANTS_PER_TICK;
+
+    public static final ModConfigSpec.IntValue MYSTERY_MIN_ITEMS;
+    public static final ModConfigSpec.IntValue MYSTERY_MAX_ITEMS;
+    public static final ModConfigSpec.ConfigValue<List<? extends String>> MYSTERY_ITEM_WEIGHTS;
+    public static final ModConfigSpec.ConfigValue<List<? extends String>> MYSTERY_STRATA;
+
+    public static final ModConfigSpec.ConfigValue<List<? extends String>> INCLUDED_NAMESPACES;
+    public static final ModConfigSpec.ConfigValue<List<? extends String>> EXCLUDED_NAMESPACES;
+    public static final ModConfigSpec.ConfigValue<List<? extends String>> EXCLUDED_ITEM_TAGS;
+    public static final ModConfigSpec.ConfigValue<List<? extends String>> EXCLUDED_ITEMS;
+    public static final ModConfigSpec.ConfigValue<List<? extends String>> EXCLUDED_KEYWORDS;
+    public static final ModConfigSpec.ConfigValue<List<? extends String>> EXCLUDED_GLOBS;
+    public static final ModConfigSpec.ConfigValue<List<? extends String>> EXCLUDED_REGEXES;
+
+    public static final ModConfigSpec.EnumValue<LootDelivery.OverflowMode> OVERFLOW_MODE;
+    public static final ModConfigSpec.IntValue MAX_DROPPED_STACKS;
+    public static final ModConfigSpec.IntValue MAILBOX_CAPACITY;
+
+    public static final ModConfigSpec.IntValue STATS_LOG_INTERVAL_MINUTES;
+
+    public static final ModConfigSpec.BooleanValue AUDIT_ENABLED;
+    public static final ModConfigSpec.IntValue AUDIT_SEGMENT_SIZE_MB;
+    public static final ModConfigSpec.IntValue AUDIT_MAX_SEGMENTS;
+
+    public static final ModConfigSpec.IntValue MAX_OPENS_PER_TICK;
+    public static final ModConfigSpec.IntValue TICK_BUDGET_MICROS;
+    public static final ModConfigSpec.IntValue OPEN_COOLDOWN_TICKS;
+    public static final ModConfigSpec.IntValue PRE_ROLLED_PER_TYPE;
+    public static final ModConfigSpec.BooleanValue SEAL_CONTENTS;
+    public static final ModConfigSpec.IntValue OPENER_OPENS_PER_TICK;
+
+    // Only the built-in types have sections; datapack-defined types are compiled untuned
+    private static final Map<LootPackagesMod.PackageType, PackageSection> PACKAGES = new HashMap<>();
+
+    /**
+     * Per-package tuning applied on top of the datapack definition when the tables are compiled.
+     */
+    public record PackageSection(ModConfigSpec.DoubleValue countMultiplier,
+                                 ModConfigSpec.DoubleValue chanceMultiplier,
+                                 ModConfigSpec.ConfigValue<List<? extends String>> itemWeights,
+                                 ModConfigSpec.ConfigValue<List<? extends String>> chances,
+                                 ModConfigSpec.ConfigValue<List<? extends String>> counts) {
+    }
 
     static {
         BUILDER.comment("Starter Pack Settings");
@@ -15,11 +66,343 @@ public class LootPackagesConfig {
                 .comment("Set to true to give new players a starter survival package when they join for the first time")
                 .comment("Set to false to disable starter packages for new players")
                 .define("giveStarterPackage", false);
+
+        STARTER_GRANT_DELAY_TICKS = BUILDER
+                .comment("Ticks after login before the starter package is given")
+                .defineInRange("starterGrantDelayTicks", 20, 0, 1200);
+
+        STARTER_GRANTS_PER_TICK = BUILDER
+                .comment("Maximum starter packages given per server tick, so mass logins are spread over several ticks")
+                .defineInRange("starterGrantsPerTick", 4, 1, 256);
+
+        BUILDER.comment("Mystery Package Settings").push("mystery");
+
+        MYSTERY_MIN_ITEMS = BUILDER
+                .comment("Minimum number of distinct items in a mystery package")
+                .defineInRange("minItems", 2, 1, 64);
+
+        MYSTERY_MAX_ITEMS = BUILDER
+                .comment("Maximum number of distinct items in a mystery package (values below minItems use minItems)")
+                .defineInRange("maxItems", 5, 1, 64);
+
+        MYSTERY_ITEM_WEIGHTS = BUILDER
+                .comment("Optional draw weights as \"namespace:item=weight\". Unlisted items have weight 1")
+                .defineListAllowEmpty("itemWeights", List.of(), () -> "minecraft:diamond=0.5",
+                        o -> o instanceof String s && s.indexOf('=') > 0);
+
+        MYSTERY_STRATA = BUILDER
+                .comment("Categories that each contribute one item before the rest is drawn at random, e.g. [\"tool\", \"food\", \"block\"]")
+                .comment("Categories: tool, weapon, armor, food, block, material, rare, unique")
+                .defineListAllowEmpty("strata", List.of(), () -> "tool",
+                        o -> o instanceof String s && ItemCategoryIndex.Category.byName(s) != null);
+
+        BUILDER.pop();
+
+        BUILDER.comment("Item Filter Settings", "Which items random packages (Mystery) may hand out").push("itemFilter");
+
+        INCLUDED_NAMESPACES = BUILDER
+                .comment("Namespaces (mod ids) items may come from. Leave empty to allow every namespace")
+                .defineListAllowEmpty("includeNamespaces", List.of("minecraft"), () -> "minecraft",
+                        o -> o instanceof String);
+
+        EXCLUDED_NAMESPACES = BUILDER
+                .comment("Namespaces that are never used, even if includeNamespaces is empty")
+                .defineListAllowEmpty("excludeNamespaces", List.of(), () -> "examplemod",
+                        o -> o instanceof String);
+
+        EXCLUDED_ITEM_TAGS = BUILDER
+                .comment("Item tags whose members are never used, e.g. \"c:hidden_from_recipe_viewers\"")
+                .defineListAllowEmpty("excludeTags", List.of("c:hidden_from_recipe_viewers"), () -> "c:hidden_from_recipe_viewers",
+                        o -> o instanceof String);
+
+        EXCLUDED_ITEMS = BUILDER
+                .comment("Item ids that are never used")
+                .defineListAllowEmpty("excludeItems", List.of(
+                        "minecraft:air", "minecraft:barrier", "minecraft:structure_void", "minecraft:structure_block",
+                        "minecraft:jigsaw", "minecraft:command_block", "minecraft:repeating_command_block",
+                        "minecraft:chain_command_block", "minecraft:command_block_minecart", "minecraft:debug_stick",
+                        "minecraft:knowledge_book", "minecraft:bedrock"), () -> "minecraft:bedrock",
+                        o -> o instanceof String);
+
+        EXCLUDED_KEYWORDS = BUILDER
+                .comment("Items whose id path contains any of these words are never used")
+                .defineListAllowEmpty("excludeKeywords", List.of(
+                        "barrier", "structure_void", "structure_block", "jigsaw", "command_block",
+                        "debug_stick", "knowledge_book", "bedrock"), () -> "spawn_egg",
+                        o -> o instanceof String);
+
+        EXCLUDED_GLOBS = BUILDER
+                .comment("Full item ids matching any of these globs are never used, e.g. \"minecraft:*_spawn_egg\"")
+                .comment("* and ? match within the namespace or the path, never across the ':'")
+                .defineListAllowEmpty("excludeGlobs", List.of(), () -> "minecraft:*_spawn_egg",
+                        o -> o instanceof String);
+
+        EXCLUDED_REGEXES = BUILDER
+                .comment("Full item ids matching any of these Java regular expressions (anywhere in the id) are never used")
+                .defineListAllowEmpty("excludeRegex", List.of(), () -> "^minecraft:.*_banner_pattern$",
+                        o -> o instanceof String);
+
+        BUILDER.pop();
+
+        BUILDER.comment("Overflow Settings", "Where package loot goes when the player's inventory is full").push("overflow");
+
+        OVERFLOW_MODE = BUILDER
+                .comment("PACKAGE: pack leftovers into one overflow package item")
+                .comment("MAILBOX: store leftovers server-side, claimed with /lootpackages claim")
+                .comment("DROP: drop leftovers on the ground, capped at maxDroppedStacks item entities")
+                .defineEnum("mode", LootDelivery.OverflowMode.PACKAGE);
+
+        MAX_DROPPED_STACKS = BUILDER
+                .comment("DROP mode: maximum item entities spawned per open; anything beyond is packed into an overflow package")
+                .defineInRange("maxDroppedStacks", 4, 1, 64);
+
+        MAILBOX_CAPACITY = BUILDER
+                .comment("MAILBOX mode: maximum stacks stored per player; anything beyond is packed into an overflow package")
+                .defineInRange("mailboxCapacity", 256, 0, 4096);
+
+        BUILDER.pop();
+
+        BUILDER.comment("Metrics Settings").push("metrics");
+
+        STATS_LOG_INTERVAL_MINUTES = BUILDER
+                .comment("Minutes between package stats summary lines in the server log (0 disables them)")
+                .defineInRange("statsLogIntervalMinutes", 30, 0, 1440);
+
+        BUILDER.pop();
+
+        BUILDER.comment("Audit Log Settings",
+                "A binary log of every package opening (player, package, seal, items) in <world>/lootpackages_audit.",
+                "Read it with: java -cp <mod jar> com.randoola.lootpackages.PackageAuditReader <dir> [options]").push("audit");
+
+        AUDIT_ENABLED = BUILDER
+                .comment("Record package openings in the audit log")
+                .worldRestart()
+                .define("enabled", false);
+
+        AUDIT_SEGMENT_SIZE_MB = BUILDER
+                .comment("Size of one audit log file in megabytes (8192 openings per megabyte); a new file is started when it is full")
+                .worldRestart()
+                .defineInRange("segmentSizeMb", 16, 1, 1024);
+
+        AUDIT_MAX_SEGMENTS = BUILDER
+                .comment("Audit log files kept; the oldest is deleted when a new one is started")
+                .worldRestart()
+                .defineInRange("maxSegments", 16, 1, 4096);
+
+        BUILDER.pop();
+
+        BUILDER.comment("Opening Settings", "Package opens are queued and worked off at the end of each server tick").push("opening");
+
+        MAX_OPENS_PER_TICK = BUILDER
+                .comment("Maximum packages opened per server tick across all players")
+                .defineInRange("maxOpensPerTick", 64, 1, 4096);
+
+        TICK_BUDGET_MICROS = BUILDER
+                .comment("Maximum time in microseconds spent opening packages per server tick (one open always runs)")
+                .defineInRange("tickBudgetMicros", 2000, 100, 50000);
+
+        OPEN_COOLDOWN_TICKS = BUILDER
+                .comment("Ticks a player has to wait between uses of a package item (0 disables the cooldown)")
+                .defineInRange("cooldownTicks", 4, 0, 200);
+
+        PRE_ROLLED_PER_TYPE = BUILDER
+                .comment("Package contents rolled ahead of time per package type by a background thread (0 disables it).")
+                .comment("Pre-rolled contents come from the worker's own random, not the world's package random sequences,")
+                .comment("so with this enabled the same world state no longer replays the same package contents")
+                .defineInRange("preRolledPerType", 0, 0, 1024);
+
+        SEAL_CONTENTS = BUILDER
+                .comment("Roll package contents when a package is created (loot tables, /lootpackages give, starter grant)")
+                .comment("and store them on the item. Sealed packages open to exactly what they were sealed with")
+                .comment("and carry a seal id that is logged when they are opened")
+                .define("sealContents", false);
+
+        OPENER_OPENS_PER_TICK = BUILDER
+                .comment("Maximum packages a Package Opener block opens per tick. Openers are not part of the player queue")
+                .defineInRange("openerOpensPerTick", 16, 1, 1024);
+
+        BUILDER.pop();
+
+        BUILDER.comment("Package Tuning",
+                "Adjustments applied on top of the package definitions in data/lootpackages/packages/.",
+                "Changes apply to a running server as soon as the file is saved; the tables are recompiled once per change.",
+                "Item rules affect every entry whose item pool contains that item").push("packages");
+
+        for (LootPackagesMod.PackageType packageType : LootPackagesMod.PackageType.BUILT_IN) {
+            if (packageType == LootPackagesMod.PackageType.MYSTERY) {
+                continue;
+            }
+            BUILDER.comment(packageType.toString()).push(packageType.getId().getPath());
+
+            PACKAGES.put(packageType, new PackageSection(
+                    BUILDER.comment("Multiplies every count range (results are at least 1)")
+                            .defineInRange("countMultiplier", 1.0, 0.0, 64.0),
+                    BUILDER.comment("Multiplies every entry chance (results are capped at 1)")
+                            .defineInRange("chanceMultiplier", 1.0, 0.0, 100.0),
+                    BUILDER.comment("Pool weight overrides as \"namespace:item=weight\"; weight 0 removes the item")
+                            .defineListAllowEmpty("itemWeights", List.of(), () -> "minecraft:diamond=2",
+                                    o -> o instanceof String s && isRule(s, PackageTuning::isValidWeight)),
+                    BUILDER.comment("Entry chance overrides as \"namespace:item=chance\", chance within [0, 1]")
+                            .defineListAllowEmpty("chances", List.of(), () -> "minecraft:elytra=0.1",
+                                    o -> o instanceof String s && isRule(s, PackageTuning::isValidChance)),
+                    BUILDER.comment("Entry count overrides as \"namespace:item=min-max\" or \"namespace:item=count\"")
+                            .defineListAllowEmpty("counts", List.of(), () -> "minecraft:netherite_scrap=1-2",
+                                    o -> o instanceof String s && isRule(s, PackageTuning::isValidCount))));
+
+            BUILDER.pop();
+        }
+
+        BUILDER.pop();
+    }
+
+    private static boolean isRule(String rule, Predicate<String> valueCheck) {
+        int separator = rule.indexOf('=');
+        return separator > 0 && ResourceLocation.tryParse(rule.substring(0, separator).trim()) != null
+                && valueCheck.test(rule.substring(separator + 1).trim());
     }
 
     public static final ModConfigSpec SPEC = BUILDER.build();
 
+    /**
+     * Reads a value, falling back to its default while the config file is not loaded yet
+     * (early setup, headless benchmarks).
+     */
+    private static <T> T get(ModConfigSpec.ConfigValue<T> value) {
+        return SPEC.isLoaded() ? value.get() : value.getDefault();
+    }
+
     public static boolean shouldGiveStarterPackage() {
-        return GIVE_STARTER_PACKAGE.get();
+        return get(GIVE_STARTER_PACKAGE);
+    }
+
+    public static int getStarterGrantDelayTicks() {
+        return get(STARTER_GRANT_DELAY_TICKS);
+    }
+
+    public static int getStarterGrantsPerTick() {
+        return get(STARTER_GRANTS_PER_TICK);
+    }
+
+    public static int getMysteryMinItems() {
+        return get(MYSTERY_MIN_ITEMS);
+    }
+
+    public static int getMysteryMaxItems() {
+        return Math.max(get(MYSTERY_MIN_ITEMS), get(MYSTERY_MAX_ITEMS));
+    }
+
+    public static List<? extends String> getMysteryItemWeights() {
+        return get(MYSTERY_ITEM_WEIGHTS);
+    }
+
+    public static List<? extends String> getMysteryStrata() {
+        return get(MYSTERY_STRATA);
+    }
+
+    public static List<? extends String> getIncludedNamespaces() {
+        return get(INCLUDED_NAMESPACES);
+    }
+
+    public static List<? extends String> getExcludedNamespaces() {
+        return get(EXCLUDED_NAMESPACES);
+    }
+
+    public static List<? extends String> getExcludedItemTags() {
+        return get(EXCLUDED_ITEM_TAGS);
+    }
+
+    public static List<? extends String> getExcludedItems() {
+        return get(EXCLUDED_ITEMS);
+    }
+
+    public static List<? extends String> getExcludedKeywords() {
+        return get(EXCLUDED_KEYWORDS);
+    }
+
+    public static List<? extends String> getExcludedGlobs() {
+        return get(EXCLUDED_GLOBS);
+    }
+
+    public static List<? extends String> getExcludedRegexes() {
+        return get(EXCLUDED_REGEXES);
+    }
+
+    public static LootDelivery.OverflowMode getOverflowMode() {
+        return get(OVERFLOW_MODE);
+    }
+
+    public static int getMaxDroppedStacks() {
+        return get(MAX_DROPPED_STACKS);
+    }
+
+    public static int getMailboxCapacity() {
+        return get(MAILBOX_CAPACITY);
+    }
+
+    public static int getStatsLogIntervalTicks() {
+        return get(STATS_LOG_INTERVAL_MINUTES) * 60 * 20;
+    }
+
+    public static boolean isAuditEnabled() {
+        return get(AUDIT_ENABLED);
+    }
+
+    public static long getAuditSegmentBytes() {
+        return get(AUDIT_SEGMENT_SIZE_MB) * 1024L * 1024L;
+    }
+
+    public static int getAuditMaxSegments() {
+        return get(AUDIT_MAX_SEGMENTS);
+    }
+
+    public static int getMaxOpensPerTick() {
+        return get(MAX_OPENS_PER_TICK);
+    }
+
+    public static long getTickBudgetNanos() {
+        return get(TICK_BUDGET_MICROS) * 1000L;
+    }
+
+    public static int getOpenCooldownTicks() {
+        return get(OPEN_COOLDOWN_TICKS);
+    }
+
+    public static int getPreRolledPerType() {
+        return get(PRE_ROLLED_PER_TYPE);
+    }
+
+    public static boolean shouldSealContents() {
+        return get(SEAL_CONTENTS);
+    }
+
+    public static int getOpenerOpensPerTick() {
+        return get(OPENER_OPENS_PER_TICK);
+    }
+
+    /**
+     * Whether the type has a [packages.<type>] section; the getters below are only valid for those.
+     */
+    public static boolean hasTuning(LootPackagesMod.PackageType packageType) {
+        return PACKAGES.containsKey(packageType);
+    }
+
+    public static double getCountMultiplier(LootPackagesMod.PackageType packageType) {
+        return get(PACKAGES.get(packageType).countMultiplier());
+    }
+
+    public static double getChanceMultiplier(LootPackagesMod.PackageType packageType) {
+        return get(PACKAGES.get(packageType).chanceMultiplier());
+    }
+
+    public static List<? extends String> getItemWeightRules(LootPackagesMod.PackageType packageType) {
+        return get(PACKAGES.get(packageType).itemWeights());
+    }
+
+    public static List<? extends String> getChanceRules(LootPackagesMod.PackageType packageType) {
+        return get(PACKAGES.get(packageType).chances());
+    }
+
+    public static List<? extends String> getCountRules(LootPackagesMod.PackageType packageType) {
+        return get(PACKAGES.get(packageType).counts());
     }
-}
\ No newline at end of file
+}
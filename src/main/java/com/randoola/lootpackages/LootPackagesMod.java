@@ -1,25 +1,70 @@
 package com.randoola.lootpackages;
 
 import com.mojang.logging.LogUtils;
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.MapCodec;
+import io.netty.buffer.ByteBuf;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Holder;
+import net.minecraft.core.component.DataComponentType;
 import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
 import net.minecraft.nbt.CompoundTag;
+import net.minecraft.network.codec.StreamCodec;
 import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.BlockItem;
 import net.minecraft.world.item.Item;
-import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.Items;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.levelgen.XoroshiroRandomSource;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.SoundType;
+import net.minecraft.world.level.block.entity.BlockEntityType;
+import net.minecraft.world.level.block.state.BlockBehaviour;
+import net.minecraft.world.level.material.MapColor;
+import net.minecraft.world.level.storage.LevelResource;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.LootParams;
+import net.minecraft.world.level.storage.loot.LootTable;
+import net.minecraft.world.level.storage.loot.functions.LootItemFunctionType;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParamSets;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParams;
+import net.minecraft.world.phys.Vec3;
 import net.neoforged.bus.api.IEventBus;
 import net.neoforged.bus.api.SubscribeEvent;
 import net.neoforged.fml.ModContainer;
 import net.neoforged.fml.common.Mod;
 import net.neoforged.fml.config.ModConfig;
+import net.neoforged.fml.event.config.ModConfigEvent;
 import net.neoforged.fml.event.lifecycle.FMLCommonSetupEvent;
+import net.neoforged.neoforge.attachment.AttachmentType;
+import net.neoforged.neoforge.capabilities.Capabilities;
+import net.neoforged.neoforge.capabilities.RegisterCapabilitiesEvent;
 import net.neoforged.neoforge.common.NeoForge;
+import net.neoforged.neoforge.common.loot.IGlobalLootModifier;
+import net.neoforged.neoforge.data.event.GatherDataEvent;
+import net.neoforged.neoforge.event.AddReloadListenerEvent;
+import net.neoforged.neoforge.event.OnDatapackSyncEvent;
+import net.neoforged.neoforge.event.RegisterCommandsEvent;
+import net.neoforged.neoforge.event.TagsUpdatedEvent;
 import net.neoforged.neoforge.event.entity.player.PlayerEvent;
+import net.neoforged.neoforge.event.server.ServerStartedEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
+import net.neoforged.neoforge.event.server.ServerStoppingEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
+import net.neoforged.neoforge.network.PacketDistributor;
+import net.neoforged.neoforge.network.event.RegisterPayloadHandlersEvent;
 import net.neoforged.neoforge.registries.DeferredRegister;
+import net.neoforged.neoforge.registries.NeoForgeRegistries;
 import org.slf4j.Logger;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 @Mod("lootpackages")
@@ -31,49 +76,85 @@ public class LootPackagesMod {
     // Register items properly
     public static final DeferredRegister<Item> ITEMS = DeferredRegister.create(BuiltInRegistries.ITEM, MODID);
 
-    // Package item registrations
-    public static final Supplier<Item> STARTER_SURVIVAL_PACKAGE = ITEMS.register("starter_survival_package",
-            () -> new PackageItem(PackageType.STARTER_SURVIVAL));
-    public static final Supplier<Item> DUNGEON_LOOT_PACKAGE = ITEMS.register("dungeon_loot_package",
-            () -> new PackageItem(PackageType.DUNGEON_LOOT));
-    public static final Supplier<Item> TREASURE_PACKAGE = ITEMS.register("treasure_package",
-            () -> new PackageItem(PackageType.TREASURE));
-    public static final Supplier<Item> NETHER_LOOT_PACKAGE = ITEMS.register("nether_loot_package",
-            () -> new PackageItem(PackageType.NETHER_LOOT));
-    public static final Supplier<Item> END_LOOT_PACKAGE = ITEMS.register("end_loot_package",
-            () -> new PackageItem(PackageType.END_LOOT));
-    public static final Supplier<Item> MOB_DROP_PACKAGE = ITEMS.register("mob_drop_package",
-            () -> new PackageItem(PackageType.MOB_DROP));
-    public static final Supplier<Item> BIOME_PACKAGE = ITEMS.register("biome_package",
-            () -> new PackageItem(PackageType.BIOME_SPECIFIC));
-    public static final Supplier<Item> MYSTERY_PACKAGE = ITEMS.register("mystery_package",
-            () -> new PackageItem(PackageType.MYSTERY));
-    public static final Supplier<Item> DEEP_DARK_PACKAGE = ITEMS.register("deep_dark_package",
-            () -> new PackageItem(PackageType.DEEP_DARK));
-
-    private static final String NBT_TAG_RECEIVED_STARTER = "received_starter_pack";
-    private static final Random RANDOM = new Random();
-
-    // Items to exclude from random selection
-    private static final Set<String> EXCLUDED_KEYWORDS = Set.of(
-            "barrier", "structure_void", "structure_block", "jigsaw", "command_block",
-            "debug_stick", "knowledge_book", "bedrock"
-    );
-
-    private static final Set<Item> EXCLUDED_ITEMS = Set.of(
-            Items.AIR, Items.BARRIER, Items.STRUCTURE_VOID, Items.STRUCTURE_BLOCK,
-            Items.JIGSAW, Items.COMMAND_BLOCK, Items.REPEATING_COMMAND_BLOCK,
-            Items.CHAIN_COMMAND_BLOCK, Items.COMMAND_BLOCK_MINECART,
-            Items.DEBUG_STICK, Items.KNOWLEDGE_BOOK, Items.BEDROCK
-    );
-
-    // PERFORMANCE OPTIMIZATION: Cache for allowed items
-    private static List<Item> cachedAllowedItems = null;
-    private static boolean itemCacheBuilt = false;
+    // One item for every package type; the type is the lootpackages:package_type component
+    public static final Supplier<Item> PACKAGE = ITEMS.register("package", PackageItem::new);
+
+    static {
+        // The per-type items from before package types were data-driven, kept so existing stacks convert
+        for (PackageType packageType : PackageType.BUILT_IN) {
+            ITEMS.register(packageType.getId().getPath() + "_package", () -> new LegacyPackageItem(packageType));
+        }
+    }
+
+    // Holds loot that did not fit into a full inventory
+    public static final Supplier<Item> OVERFLOW_PACKAGE = ITEMS.register("overflow_package", OverflowPackageItem::new);
+
+    // Opens packages fed in by automation and pushes the loot into the inventory in front of it
+    public static final DeferredRegister<Block> BLOCKS = DeferredRegister.create(BuiltInRegistries.BLOCK, MODID);
+    public static final Supplier<Block> PACKAGE_OPENER = BLOCKS.register("package_opener",
+            () -> new PackageOpenerBlock(BlockBehaviour.Properties.of().mapColor(MapColor.WOOD).strength(2.5f).sound(SoundType.WOOD)));
+    public static final Supplier<Item> PACKAGE_OPENER_ITEM = ITEMS.register("package_opener",
+            () -> new BlockItem(PACKAGE_OPENER.get(), new Item.Properties()));
+
+    public static final DeferredRegister<BlockEntityType<?>> BLOCK_ENTITY_TYPES =
+            DeferredRegister.create(BuiltInRegistries.BLOCK_ENTITY_TYPE, MODID);
+    public static final Supplier<BlockEntityType<PackageOpenerBlockEntity>> PACKAGE_OPENER_BLOCK_ENTITY =
+            BLOCK_ENTITY_TYPES.register("package_opener",
+                    () -> BlockEntityType.Builder.of(PackageOpenerBlockEntity::new, PACKAGE_OPENER.get()).build(null));
+
+    public static final DeferredRegister.DataComponents DATA_COMPONENTS =
+            DeferredRegister.createDataComponents(Registries.DATA_COMPONENT_TYPE, MODID);
+    public static final Supplier<DataComponentType<PackageType>> PACKAGE_TYPE =
+            DATA_COMPONENTS.registerComponentType("package_type", builder -> builder
+                    .persistent(PackageType.CODEC)
+                    .networkSynchronized(PackageType.STREAM_CODEC));
+    // Package contents rolled at creation (opening.sealContents)
+    public static final Supplier<DataComponentType<SealedContents>> SEALED_CONTENTS =
+            DATA_COMPONENTS.registerComponentType("sealed_contents", builder -> builder
+                    .persistent(SealedContents.CODEC)
+                    .networkSynchronized(SealedContents.STREAM_CODEC));
+
+    public static final DeferredRegister<AttachmentType<?>> ATTACHMENT_TYPES =
+            DeferredRegister.create(NeoForgeRegistries.Keys.ATTACHMENT_TYPES, MODID);
+    // Per-player package state (one-time grants); follows the player through death
+    public static final Supplier<AttachmentType<PlayerPackageData>> PLAYER_DATA =
+            ATTACHMENT_TYPES.register("player_data", () -> AttachmentType.builder(() -> PlayerPackageData.EMPTY)
+                    .serialize(PlayerPackageData.CODEC, data -> !data.isEmpty())
+                    .copyOnDeath()
+                    .build());
+
+    public static final DeferredRegister<LootItemFunctionType<?>> LOOT_FUNCTIONS =
+            DeferredRegister.create(Registries.LOOT_FUNCTION_TYPE, MODID);
+    public static final Supplier<LootItemFunctionType<SealContentsFunction>> SEAL_CONTENTS_FUNCTION =
+            LOOT_FUNCTIONS.register("seal_contents", () -> new LootItemFunctionType<>(SealContentsFunction.CODEC));
+    public static final Supplier<LootItemFunctionType<SetPackageFunction>> SET_PACKAGE_FUNCTION =
+            LOOT_FUNCTIONS.register("set_package", () -> new LootItemFunctionType<>(SetPackageFunction.CODEC));
+
+    public static final DeferredRegister<MapCodec<? extends IGlobalLootModifier>> LOOT_MODIFIER_SERIALIZERS =
+            DeferredRegister.create(NeoForgeRegistries.Keys.GLOBAL_LOOT_MODIFIER_SERIALIZERS, MODID);
+    // Adds packages to vanilla chest, entity and fishing loot; the injections are datagen output
+    public static final Supplier<MapCodec<PackageInjectionModifier>> PACKAGE_INJECTION_MODIFIER =
+            LOOT_MODIFIER_SERIALIZERS.register("inject_packages", () -> PackageInjectionModifier.CODEC);
+
+    // Re-picks allowed per mystery stratum when the pick collides with an item already chosen
+    private static final int STRATUM_ATTEMPTS = 4;
+
+    // Where the starter flag lived before the player data attachment; migrated on join
+    private static final String LEGACY_DATA_KEY = "lootpackages";
+    private static final String LEGACY_TAG_RECEIVED_STARTER = "received_starter_pack";
+
+    // Server ticks since the last package stats summary line
+    private static int ticksSinceStatsLog = 0;
 
     public LootPackagesMod(IEventBus modEventBus, ModContainer modContainer) {
         // Register items
         ITEMS.register(modEventBus);
+        BLOCKS.register(modEventBus);
+        BLOCK_ENTITY_TYPES.register(modEventBus);
+        DATA_COMPONENTS.register(modEventBus);
+        ATTACHMENT_TYPES.register(modEventBus);
+        LOOT_FUNCTIONS.register(modEventBus);
+        LOOT_MODIFIER_SERIALIZERS.register(modEventBus);
 
         // Register creative mode tabs
         ModCreativeModeTabs.register(modEventBus);
@@ -83,6 +164,10 @@ public class LootPackagesMod {
 
         // Register for setup event to build cache
         modEventBus.addListener(this::onCommonSetup);
+        modEventBus.addListener(this::onConfigReload);
+        modEventBus.addListener(this::onRegisterCapabilities);
+        modEventBus.addListener(this::onRegisterPayloads);
+        modEventBus.addListener(this::onGatherData);
 
         NeoForge.EVENT_BUS.register(this);
         LOGGER.info("Loot Packages Mod loaded - Multiple themed packages available!");
@@ -92,45 +177,85 @@ public class LootPackagesMod {
     public void onCommonSetup(FMLCommonSetupEvent event) {
         // Build the item cache after all mods have registered their items
         event.enqueueWork(() -> {
-            buildItemCache();
-            LOGGER.info("Built item cache with {} allowed items", cachedAllowedItems.size());
+            buildItemCache(BuiltInRegistries.ITEM);
+            LOGGER.info("Built item cache with {} allowed items", AllowedItemSnapshot.current().size());
         });
     }
 
+    public void onConfigReload(ModConfigEvent.Reloading event) {
+        // Namespace, tag and weight settings feed the snapshot; package tuning feeds the compiled tables
+        if (event.getConfig().getSpec() == LootPackagesConfig.SPEC) {
+            rebuildItemCache();
+            PackageLootTables.recompile();
+        }
+    }
+
+    public void onRegisterCapabilities(RegisterCapabilitiesEvent event) {
+        // Hoppers, pipes and the like feed the opener through its input slots
+        event.registerBlockEntity(Capabilities.ItemHandler.BLOCK, PACKAGE_OPENER_BLOCK_ENTITY.get(),
+                (opener, side) -> opener.getInput());
+    }
+
+    public void onRegisterPayloads(RegisterPayloadHandlersEvent event) {
+        event.registrar("1").playToClient(PackageDisplays.Payload.TYPE, PackageDisplays.Payload.STREAM_CODEC,
+                PackageDisplays.Payload::handle);
+    }
+
+    public void onGatherData(GatherDataEvent event) {
+        event.getGenerator().addProvider(event.includeServer(),
+                new PackageLootModifierProvider(event.getGenerator().getPackOutput(), event.getLookupProvider()));
+    }
+
+    @SubscribeEvent
+    public void onDatapackSync(OnDatapackSyncEvent event) {
+        // Names, tooltips, models and the creative tab on the client all come from the loaded definitions
+        PackageDisplays.Payload payload = PackageDisplays.Payload.current();
+        event.getRelevantPlayers().forEach(player -> PacketDistributor.sendToPlayer(player, payload));
+    }
+
+    @SubscribeEvent
+    public void onTagsUpdated(TagsUpdatedEvent event) {
+        // Tag blocklists and tag-based amount profiles only resolve once server tags are bound,
+        // and every datapack reload rebinds them
+        if (event.getUpdateCause() == TagsUpdatedEvent.UpdateCause.SERVER_DATA_LOAD) {
+            rebuildItemCache();
+            PackageLootTables.clearBiomeCaches();
+        }
+    }
+
     /**
-     * Builds the cache of allowed items once during mod initialization
-     * This prevents expensive registry iteration every time mystery packages are opened
+     * Builds a new allowed-item snapshot (filtering, mystery sampler) from the given items and the amount
+     * profiles, then publishes it atomically. Readers keep using the previous snapshot until the swap.
+     * Amount profiles always cover the whole item registry, since loot tables can hand out any item.
      */
-    private static void buildItemCache() {
-        if (itemCacheBuilt) {
-            return; // Prevent multiple cache builds
-        }
-
-        cachedAllowedItems = new ArrayList<>();
-        int totalItems = 0;
-        int excludedItems = 0;
-
-        for (Item item : BuiltInRegistries.ITEM) {
-            totalItems++;
-            ResourceLocation location = BuiltInRegistries.ITEM.getKey(item);
-            if (location != null) {
-                boolean isVanilla = "minecraft".equals(location.getNamespace());
-                if (isVanilla && isItemAllowed(item)) {
-                    cachedAllowedItems.add(item);
-                } else {
-                    excludedItems++;
-                }
-            } else {
-                excludedItems++;
-            }
-        }
+    static void buildItemCache(Iterable<Item> items) {
+        AllowedItemSnapshot snapshot = AllowedItemSnapshot.build(items);
+        AmountProfile.buildTable();
+        AllowedItemSnapshot.publish(snapshot);
+        PreRolledLoot.invalidate();
+
+        LOGGER.debug("Item cache built: {} allowed items out of {} total items ({} excluded)",
+                snapshot.size(), snapshot.getTotalItems(), snapshot.getTotalItems() - snapshot.size());
+    }
 
-        // Make the list immutable to prevent accidental modification
-        cachedAllowedItems = Collections.unmodifiableList(cachedAllowedItems);
-        itemCacheBuilt = true;
+    /**
+     * Gets the mystery item sampler, building the item cache first if needed
+     */
+    public static MysterySampler getMysterySampler() {
+        return getItemSnapshot().getMysterySampler();
+    }
 
-        LOGGER.info("Item cache built: {} allowed items out of {} total items ({} excluded)",
-                cachedAllowedItems.size(), totalItems, excludedItems);
+    /**
+     * Gets the current allowed-item snapshot, building it first if nothing has been published yet
+     */
+    public static AllowedItemSnapshot getItemSnapshot() {
+        AllowedItemSnapshot snapshot = AllowedItemSnapshot.current();
+        if (!snapshot.isBuilt()) {
+            LOGGER.warn("Item cache not yet built, building now...");
+            buildItemCache(BuiltInRegistries.ITEM);
+            snapshot = AllowedItemSnapshot.current();
+        }
+        return snapshot;
     }
 
     /**
@@ -138,497 +263,458 @@ public class LootPackagesMod {
      * This is now a fast O(1) operation instead of iterating through the entire registry
      */
     public static List<Item> getAllServerItems() {
-        if (!itemCacheBuilt || cachedAllowedItems == null) {
-            LOGGER.warn("Item cache not yet built, building now...");
-            buildItemCache();
-        }
-        return cachedAllowedItems;
+        return getItemSnapshot().items();
     }
 
     /**
-     * Force rebuild the item cache (useful if items are registered after initial setup)
+     * Force rebuild the item cache (after config, tag or datapack changes)
      */
     public static void rebuildItemCache() {
         LOGGER.info("Rebuilding item cache...");
-        itemCacheBuilt = false;
-        cachedAllowedItems = null;
-        buildItemCache();
+        buildItemCache(BuiltInRegistries.ITEM);
     }
 
     @SubscribeEvent
-    public void onPlayerJoin(PlayerEvent.PlayerLoggedInEvent event) {
-        if (!(event.getEntity() instanceof ServerPlayer player)) return;
-
-        // Check if starter packages are disabled in config
-        if (!LootPackagesConfig.shouldGiveStarterPackage()) {
-            LOGGER.debug("Starter packages are disabled in config - skipping player {}", player.getName().getString());
-            return;
-        }
-
-        if (hasReceivedStarterPack(player)) {
-            LOGGER.debug("Player {} has already received starter pack", player.getName().getString());
-            return;
-        }
-
-        // Give player a starter survival package
-        player.getInventory().add(new ItemStack(STARTER_SURVIVAL_PACKAGE.get()));
-        markReceivedStarterPack(player);
-
-        LOGGER.info("Gave starter survival package to new player: {}", player.getName().getString());
+    public void onAddReloadListeners(AddReloadListenerEvent event) {
+        // Package definitions are compiled once per datapack reload
+        event.addListener(new PackageLootTables());
     }
 
-    // Package type definitions
-    public enum PackageType {
-        STARTER_SURVIVAL("Starter Survival Package"),
-        DUNGEON_LOOT("Dungeon Loot Package"),
-        TREASURE("Treasure Package"),
-        NETHER_LOOT("Nether Loot Package"),
-        END_LOOT("End Loot Package"),
-        MOB_DROP("Mob Drop Package"),
-        BIOME_SPECIFIC("Biome Package"),
-        MYSTERY("Mystery Package"),
-        DEEP_DARK("Deep Dark Package");
-
-        private final String displayName;
-
-        PackageType(String displayName) {
-            this.displayName = displayName;
-        }
-
-        public String getDisplayName() {
-            return displayName;
-        }
+    @SubscribeEvent
+    public void onRegisterCommands(RegisterCommandsEvent event) {
+        LootPackagesCommands.register(event.getDispatcher(), event.getBuildContext());
     }
 
-    // Loot generation methods for each package type
-    public static void generatePackageLoot(ServerPlayer player, PackageType packageType) {
-        List<ItemStack> loot = new ArrayList<>();
-
-        switch (packageType) {
-            case STARTER_SURVIVAL -> generateStarterSurvivalLoot(loot);
-            case DUNGEON_LOOT -> generateDungeonLoot(loot);
-            case TREASURE -> generateTreasureLoot(loot);
-            case NETHER_LOOT -> generateNetherLoot(loot);
-            case END_LOOT -> generateEndLoot(loot);
-            case MOB_DROP -> generateMobDropLoot(loot);
-            case BIOME_SPECIFIC -> generateBiomeLoot(loot);
-            case MYSTERY -> generateMysteryLoot(loot);
-            case DEEP_DARK -> generateDeepDarkLoot(loot);
-        }
-
-        // Give items to player
-        for (ItemStack stack : loot) {
-            if (!player.getInventory().add(stack)) {
-                player.drop(stack, false);
+    @SubscribeEvent
+    public void onServerTick(ServerTickEvent.Post event) {
+        StarterGrantQueue.drain(event.getServer());
+        PackageOpenQueue.drain(event.getServer());
+
+        int interval = LootPackagesConfig.getStatsLogIntervalTicks();
+        if (interval > 0 && ++ticksSinceStatsLog >= interval) {
+            ticksSinceStatsLog = 0;
+            if (PackageMetrics.getTotalOpens() > 0) {
+                LOGGER.info("Package stats: {}", PackageMetrics.summary());
             }
         }
-
-        LOGGER.info("Player {} opened {} and received {} items",
-                player.getName().getString(), packageType.getDisplayName(), loot.size());
     }
 
-    private static void generateStarterSurvivalLoot(List<ItemStack> loot) {
-        // Basic tools (wooden or stone tier)
-        List<Item> basicTools = Arrays.asList(
-                Items.WOODEN_PICKAXE, Items.WOODEN_AXE, Items.WOODEN_SHOVEL,
-                Items.STONE_PICKAXE, Items.STONE_AXE, Items.STONE_SHOVEL
-        );
-        loot.add(new ItemStack(basicTools.get(RANDOM.nextInt(basicTools.size()))));
-
-        // Food items
-        List<Item> foods = Arrays.asList(
-                Items.BREAD, Items.APPLE, Items.COOKED_BEEF, Items.COOKED_PORKCHOP, Items.COOKED_CHICKEN
-        );
-        for (int i = 0; i < 2; i++) {
-            Item food = foods.get(RANDOM.nextInt(foods.size()));
-            loot.add(new ItemStack(food, 4 + RANDOM.nextInt(9))); // 4-12 food
-        }
-
-        // Essential items
-        loot.add(new ItemStack(Items.TORCH, 16 + RANDOM.nextInt(17))); // 16-32 torches
-        loot.add(new ItemStack(Items.CRAFTING_TABLE));
-
-        // Seeds
-        List<Item> seeds = Arrays.asList(Items.WHEAT_SEEDS, Items.BEETROOT_SEEDS, Items.CARROT, Items.POTATO);
-        loot.add(new ItemStack(seeds.get(RANDOM.nextInt(seeds.size())), 2 + RANDOM.nextInt(4))); // 2-5 seeds
-
-        // Low-tier armor (chance)
-        if (RANDOM.nextBoolean()) {
-            List<Item> armor = Arrays.asList(Items.LEATHER_HELMET, Items.LEATHER_CHESTPLATE,
-                    Items.LEATHER_LEGGINGS, Items.LEATHER_BOOTS);
-            loot.add(new ItemStack(armor.get(RANDOM.nextInt(armor.size()))));
+    @SubscribeEvent
+    public void onPlayerLogout(PlayerEvent.PlayerLoggedOutEvent event) {
+        // Return anything still queued as unopened packages before the inventory is saved
+        if (event.getEntity() instanceof ServerPlayer player) {
+            PackageOpenQueue.flush(player);
         }
-
-        // Building materials
-        loot.add(new ItemStack(Items.OAK_PLANKS, 16 + RANDOM.nextInt(33))); // 16-48 planks
     }
 
-    private static void generateDungeonLoot(List<ItemStack> loot) {
-        // Iron gear
-        List<Item> ironGear = Arrays.asList(
-                Items.IRON_SWORD, Items.IRON_PICKAXE, Items.IRON_HELMET, Items.IRON_CHESTPLATE
-        );
-        loot.add(new ItemStack(ironGear.get(RANDOM.nextInt(ironGear.size()))));
-
-        // Rare ores
-        List<Item> ores = Arrays.asList(Items.GOLD_INGOT, Items.LAPIS_LAZULI, Items.REDSTONE);
-        Item ore = ores.get(RANDOM.nextInt(ores.size()));
-        loot.add(new ItemStack(ore, 2 + RANDOM.nextInt(6))); // 2-7 items
-
-        // Potions ingredients
-        List<Item> potionIngredients = Arrays.asList(
-                Items.GLOWSTONE_DUST, Items.REDSTONE, Items.SPIDER_EYE, Items.GOLDEN_CARROT
-        );
-        loot.add(new ItemStack(potionIngredients.get(RANDOM.nextInt(potionIngredients.size())), 1 + RANDOM.nextInt(3)));
-
-        // Dungeon atmosphere items
-        if (RANDOM.nextFloat() < 0.3f) {
-            loot.add(new ItemStack(Items.MUSIC_DISC_CAT));
-        }
-        loot.add(new ItemStack(Items.BONE, 3 + RANDOM.nextInt(5)));
-        loot.add(new ItemStack(Items.STRING, 1 + RANDOM.nextInt(4)));
+    @SubscribeEvent
+    public void onServerStarted(ServerStartedEvent event) {
+        PreRolledLoot.start();
+        PackageAuditLog.start(event.getServer().getWorldPath(LevelResource.ROOT).resolve("lootpackages_audit"));
     }
 
-    private static void generateTreasureLoot(List<ItemStack> loot) {
-        // Valuable materials
-        loot.add(new ItemStack(Items.DIAMOND, 1 + RANDOM.nextInt(3))); // 1-3 diamonds
-        loot.add(new ItemStack(Items.EMERALD, 2 + RANDOM.nextInt(4))); // 2-5 emeralds
-        loot.add(new ItemStack(Items.GOLD_INGOT, 3 + RANDOM.nextInt(6))); // 3-8 gold
-
-        // Ocean-themed treasure
-        if (RANDOM.nextFloat() < 0.4f) {
-            loot.add(new ItemStack(Items.HEART_OF_THE_SEA));
-        }
-        if (RANDOM.nextFloat() < 0.6f) {
-            loot.add(new ItemStack(Items.NAUTILUS_SHELL, 1 + RANDOM.nextInt(3)));
-        }
-
-        // Maps and compass
-        loot.add(new ItemStack(Items.MAP));
-        loot.add(new ItemStack(Items.COMPASS));
-
-        // Rare gear
-        List<Item> rareGear = Arrays.asList(Items.DIAMOND_SWORD, Items.DIAMOND_PICKAXE, Items.BOW);
-        loot.add(new ItemStack(rareGear.get(RANDOM.nextInt(rareGear.size()))));
+    @SubscribeEvent
+    public void onServerStopping(ServerStoppingEvent event) {
+        PreRolledLoot.stop();
+        PackageAuditLog.stop();
     }
 
-    private static void generateNetherLoot(List<ItemStack> loot) {
-        // Nether-specific materials
-        loot.add(new ItemStack(Items.GOLD_BLOCK, 1 + RANDOM.nextInt(3))); // 1-3 gold blocks
-
-        if (RANDOM.nextFloat() < 0.2f) {
-            loot.add(new ItemStack(Items.NETHERITE_SCRAP, 1 + RANDOM.nextInt(2))); // 1-2 scraps
-        }
+    @SubscribeEvent
+    public void onServerStopped(ServerStoppedEvent event) {
+        PackageOpenQueue.clear();
+        StarterGrantQueue.clear();
+    }
 
-        // Nether items
-        loot.add(new ItemStack(Items.MAGMA_CREAM, 2 + RANDOM.nextInt(4))); // 2-5 magma cream
-        loot.add(new ItemStack(Items.GHAST_TEAR, 1 + RANDOM.nextInt(2))); // 1-2 tears
-        loot.add(new ItemStack(Items.BLAZE_ROD, 1 + RANDOM.nextInt(3))); // 1-3 rods
+    @SubscribeEvent
+    public void onPlayerJoin(PlayerEvent.PlayerLoggedInEvent event) {
+        if (!(event.getEntity() instanceof ServerPlayer player)) return;
 
-        // Fire resistance materials
-        loot.add(new ItemStack(Items.FIRE_CHARGE, 3 + RANDOM.nextInt(5))); // 3-7 charges
+        migrateLegacyStarterFlag(player);
 
-        // Nether building materials
-        loot.add(new ItemStack(Items.BLACKSTONE, 8 + RANDOM.nextInt(17))); // 8-24 blackstone
-        if (RANDOM.nextFloat() < 0.3f) {
-            loot.add(new ItemStack(Items.CRYING_OBSIDIAN, 1 + RANDOM.nextInt(3)));
-        }
-        if (RANDOM.nextFloat() < 0.4f) {
-            loot.add(new ItemStack(Items.CHAIN, 2 + RANDOM.nextInt(4)));
+        // Only queued here; the package is given over the next ticks, outside the login burst
+        if (LootPackagesConfig.shouldGiveStarterPackage()
+                && !player.getData(PLAYER_DATA).hasReceived(PlayerPackageData.STARTER_GRANT)) {
+            StarterGrantQueue.enqueue(player);
         }
     }
 
-    private static void generateEndLoot(List<ItemStack> loot) {
-        // End-specific rare items
-        if (RANDOM.nextFloat() < 0.1f) {
-            loot.add(new ItemStack(Items.ELYTRA)); // Very rare
-        }
+    /**
+     * A package type: the id of a package definition under data/<namespace>/packages/. Types with a loaded
+     * definition (and the built-in ones) are interned, with a dense index for array lookups that stays the same
+     * for the lifetime of the game. Which types exist is decided by the loaded definitions, so a datapack can
+     * add types without registry entries or a restart.
+     *
+     * The codecs do not intern: an id decoded from a stack (old saves, creative clients, commands) that no
+     * definition uses gets a detached instance with no index, so arbitrary ids cannot grow the per-type arrays.
+     * A detached type picks up the index once its id is interned. Types are equal by id.
+     */
+    public static final class PackageType {
 
-        if (RANDOM.nextFloat() < 0.3f) {
-            loot.add(new ItemStack(Items.SHULKER_SHELL, 1 + RANDOM.nextInt(2))); // 1-2 shells
-        }
+        private static final Map<ResourceLocation, PackageType> INTERNED = new ConcurrentHashMap<>();
+        private static volatile int count = 0;
 
-        // End materials
-        loot.add(new ItemStack(Items.ENDER_PEARL, 4 + RANDOM.nextInt(9))); // 4-12 pearls
-        loot.add(new ItemStack(Items.CHORUS_FRUIT, 6 + RANDOM.nextInt(11))); // 6-16 fruit
-        loot.add(new ItemStack(Items.CHORUS_FLOWER, 1 + RANDOM.nextInt(3))); // 1-3 flowers
+        // Shipped with the mod; these get config sections and legacy items
+        public static final PackageType STARTER_SURVIVAL = builtIn("starter_survival");
+        public static final PackageType DUNGEON_LOOT = builtIn("dungeon_loot");
+        public static final PackageType TREASURE = builtIn("treasure");
+        public static final PackageType NETHER_LOOT = builtIn("nether_loot");
+        public static final PackageType END_LOOT = builtIn("end_loot");
+        public static final PackageType MOB_DROP = builtIn("mob_drop");
+        public static final PackageType BIOME_SPECIFIC = builtIn("biome");
+        public static final PackageType MYSTERY = builtIn("mystery");
+        public static final PackageType DEEP_DARK = builtIn("deep_dark");
 
-        // High-tier gear
-        List<Item> endGear = Arrays.asList(Items.DIAMOND_SWORD, Items.DIAMOND_PICKAXE, Items.DIAMOND_CHESTPLATE);
-        loot.add(new ItemStack(endGear.get(RANDOM.nextInt(endGear.size()))));
+        public static final List<PackageType> BUILT_IN = List.of(STARTER_SURVIVAL, DUNGEON_LOOT, TREASURE, NETHER_LOOT,
+                END_LOOT, MOB_DROP, BIOME_SPECIFIC, MYSTERY, DEEP_DARK);
 
-        // End building materials
-        loot.add(new ItemStack(Items.END_STONE, 16 + RANDOM.nextInt(17))); // 16-32 end stone
-        loot.add(new ItemStack(Items.END_ROD, 4 + RANDOM.nextInt(5))); // 4-8 end rods
+        public static final Codec<PackageType> CODEC = ResourceLocation.CODEC.xmap(PackageType::decode, PackageType::getId);
+        public static final StreamCodec<ByteBuf, PackageType> STREAM_CODEC =
+                ResourceLocation.STREAM_CODEC.map(PackageType::decode, PackageType::getId);
 
-        // XP bottles
-        loot.add(new ItemStack(Items.EXPERIENCE_BOTTLE, 5 + RANDOM.nextInt(11))); // 5-15 bottles
-    }
+        // Index of a detached type whose id is not interned
+        public static final int NO_INDEX = -1;
 
-    private static void generateMobDropLoot(List<ItemStack> loot) {
-        // Mob-specific drops
-        List<Item> validMobDrops = Arrays.asList(
-                Items.BLAZE_ROD, Items.PHANTOM_MEMBRANE, Items.SPIDER_EYE, Items.SLIME_BALL,
-                Items.GHAST_TEAR, Items.ENDER_PEARL, Items.BONE, Items.STRING, Items.GUNPOWDER
-        );
+        private final ResourceLocation id;
+        private volatile int index;
 
-        for (int i = 0; i < 3; i++) {
-            Item drop = validMobDrops.get(RANDOM.nextInt(validMobDrops.size()));
-            loot.add(new ItemStack(drop, 1 + RANDOM.nextInt(4))); // 1-4 of each
+        private PackageType(ResourceLocation id, int index) {
+            this.id = id;
+            this.index = index;
         }
 
-        // Rare chance for gear
-        if (RANDOM.nextFloat() < 0.2f) {
-            List<Item> gearDrops = Arrays.asList(Items.IRON_SWORD, Items.BOW, Items.IRON_HELMET);
-            loot.add(new ItemStack(gearDrops.get(RANDOM.nextInt(gearDrops.size()))));
+        private static PackageType builtIn(String name) {
+            return of(ResourceLocation.fromNamespaceAndPath(MODID, name));
         }
 
-        // Thematic combinations
-        if (RANDOM.nextFloat() < 0.3f) {
-            loot.add(new ItemStack(Items.COBWEB, 2 + RANDOM.nextInt(4)));
+        /**
+         * The type for a decoded id: the interned one if the id is known, otherwise a detached instance.
+         */
+        private static PackageType decode(ResourceLocation id) {
+            PackageType packageType = INTERNED.get(id);
+            return packageType != null ? packageType : new PackageType(id, NO_INDEX);
         }
-    }
-
-    private static void generateBiomeLoot(List<ItemStack> loot) {
-        // Randomly pick a biome theme
-        String[] biomes = {"jungle", "desert", "snowy", "ocean", "forest", "mountain"};
-        String biome = biomes[RANDOM.nextInt(biomes.length)];
 
-        switch (biome) {
-            case "jungle":
-                loot.add(new ItemStack(Items.MELON_SLICE, 8 + RANDOM.nextInt(9)));
-                loot.add(new ItemStack(Items.BAMBOO, 16 + RANDOM.nextInt(17)));
-                loot.add(new ItemStack(Items.COCOA_BEANS, 4 + RANDOM.nextInt(5)));
-                loot.add(new ItemStack(Items.JUNGLE_LOG, 8 + RANDOM.nextInt(17)));
-                break;
-
-            case "desert":
-                loot.add(new ItemStack(Items.SAND, 16 + RANDOM.nextInt(33)));
-                loot.add(new ItemStack(Items.CACTUS, 4 + RANDOM.nextInt(5)));
-                loot.add(new ItemStack(Items.GOLD_NUGGET, 8 + RANDOM.nextInt(9)));
-                loot.add(new ItemStack(Items.DEAD_BUSH, 2 + RANDOM.nextInt(4)));
-                break;
-
-            case "snowy":
-                loot.add(new ItemStack(Items.PACKED_ICE, 8 + RANDOM.nextInt(9)));
-                loot.add(new ItemStack(Items.SNOWBALL, 16 + RANDOM.nextInt(17)));
-                loot.add(new ItemStack(Items.RABBIT_HIDE, 3 + RANDOM.nextInt(4)));
-                loot.add(new ItemStack(Items.SPRUCE_LOG, 8 + RANDOM.nextInt(17)));
-                break;
-
-            case "ocean":
-                loot.add(new ItemStack(Items.PRISMARINE, 8 + RANDOM.nextInt(17)));
-                loot.add(new ItemStack(Items.KELP, 12 + RANDOM.nextInt(13)));
-                if (RANDOM.nextFloat() < 0.1f) {
-                    loot.add(new ItemStack(Items.TRIDENT));
-                }
-                loot.add(new ItemStack(Items.COD, 4 + RANDOM.nextInt(5)));
-                break;
-
-            case "forest":
-                loot.add(new ItemStack(Items.OAK_LOG, 12 + RANDOM.nextInt(17)));
-                loot.add(new ItemStack(Items.APPLE, 6 + RANDOM.nextInt(7)));
-                loot.add(new ItemStack(Items.SWEET_BERRIES, 8 + RANDOM.nextInt(9)));
-                loot.add(new ItemStack(Items.MUSHROOM_STEW, 2 + RANDOM.nextInt(3)));
-                break;
-
-            case "mountain":
-                loot.add(new ItemStack(Items.STONE, 16 + RANDOM.nextInt(17)));
-                loot.add(new ItemStack(Items.COAL, 8 + RANDOM.nextInt(9)));
-                loot.add(new ItemStack(Items.IRON_ORE, 3 + RANDOM.nextInt(4)));
-                loot.add(new ItemStack(Items.EMERALD, 1 + RANDOM.nextInt(3)));
-                break;
+        /**
+         * The interned type for a definition id, whether or not a definition with that id is currently loaded.
+         * Only for ids of loaded definitions and built-in types; every call with a new id grows count().
+         */
+        public static PackageType of(ResourceLocation id) {
+            PackageType packageType = INTERNED.get(id);
+            return packageType != null ? packageType : intern(id);
         }
 
-        LOGGER.info("Generated {} biome package", biome);
-    }
-
-    private static void generateDeepDarkLoot(List<ItemStack> loot) {
-        // === Ancient City Exclusive Items (Always Include) ===
-        loot.add(new ItemStack(Items.ECHO_SHARD, 1 + RANDOM.nextInt(3))); // 1-3 echo shards
-        loot.add(new ItemStack(Items.DISC_FRAGMENT_5, 1 + RANDOM.nextInt(3))); // 1-3 disc fragments
-
-        // === Common Ancient City Loot ===
-        loot.add(new ItemStack(Items.COAL, 6 + RANDOM.nextInt(10))); // 6-15 coal
-        loot.add(new ItemStack(Items.BONE, 1 + RANDOM.nextInt(15))); // 1-15 bones
-        loot.add(new ItemStack(Items.SOUL_TORCH, 1 + RANDOM.nextInt(15))); // 1-15 soul torches
-        loot.add(new ItemStack(Items.CANDLE, 1 + RANDOM.nextInt(4))); // 1-4 candles
-        loot.add(new ItemStack(Items.SCULK, 4 + RANDOM.nextInt(7))); // 4-10 sculk
-        loot.add(new ItemStack(Items.SCULK_SENSOR, 1 + RANDOM.nextInt(3))); // 1-3 sculk sensors
-        loot.add(new ItemStack(Items.EXPERIENCE_BOTTLE, 1 + RANDOM.nextInt(3))); // 1-3 XP bottles
-        loot.add(new ItemStack(Items.BOOK, 3 + RANDOM.nextInt(8))); // 3-10 regular books
-        loot.add(new ItemStack(Items.AMETHYST_SHARD, 1 + RANDOM.nextInt(15))); // 1-15 amethyst
-        loot.add(new ItemStack(Items.GLOW_BERRIES, 1 + RANDOM.nextInt(15))); // 1-15 glow berries
-
-        // === High Value Ancient City Items (Chance-based) ===
-
-        // Enchanted Golden Apple (most valuable)
-        if (RANDOM.nextFloat() < 0.4f) {
-            loot.add(new ItemStack(Items.ENCHANTED_GOLDEN_APPLE, 1 + RANDOM.nextInt(2))); // 1-2
+        private static synchronized PackageType intern(ResourceLocation id) {
+            PackageType packageType = INTERNED.get(id);
+            if (packageType == null) {
+                packageType = new PackageType(id, count);
+                INTERNED.put(id, packageType);
+                count++;
+            }
+            return packageType;
         }
 
-        // Music Disc Otherside (very rare)
-        if (RANDOM.nextFloat() < 0.15f) {
-            loot.add(new ItemStack(Items.MUSIC_DISC_OTHERSIDE));
+        /**
+         * Number of interned types; every index is below this.
+         */
+        public static int count() {
+            return count;
         }
 
-        // Other valuable items from Ancient City
-        if (RANDOM.nextFloat() < 0.20f) {
-            loot.add(new ItemStack(Items.SCULK_CATALYST, 1 + RANDOM.nextInt(2))); // 1-2 catalysts
+        /**
+         * Looks a loaded type up by id, or by path alone for the lootpackages namespace ("treasure",
+         * "deep_dark", ...). Returns null if no such definition is loaded.
+         */
+        public static PackageType byName(String name) {
+            ResourceLocation id = name.indexOf(':') >= 0 ? ResourceLocation.tryParse(name) : ResourceLocation.tryBuild(MODID, name);
+            if (id == null || !INTERNED.containsKey(id)) {
+                return null;
+            }
+            PackageType packageType = INTERNED.get(id);
+            return PackageLootTables.isDefined(packageType) ? packageType : null;
+        }
+
+        /**
+         * Id of the package definition, also used as the name of the package's random sequence.
+         */
+        public ResourceLocation getId() {
+            return id;
+        }
+
+        /**
+         * The dense index, or NO_INDEX for a detached type whose id has not been interned.
+         */
+        public int getIndex() {
+            int current = index;
+            if (current == NO_INDEX) {
+                PackageType interned = INTERNED.get(id);
+                if (interned != null) {
+                    current = interned.index;
+                    index = current;
+                }
+            }
+            return current;
         }
 
-        if (RANDOM.nextFloat() < 0.25f) {
-            loot.add(new ItemStack(Items.NAME_TAG));
+        /**
+         * Mystery packages draw from the whole item registry; every other type is rolled from its compiled table.
+         */
+        public boolean isTableDriven() {
+            return !PackageLootTables.isMystery(this);
         }
 
-        if (RANDOM.nextFloat() < 0.25f) {
-            loot.add(new ItemStack(Items.LEAD));
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof PackageType other && id.equals(other.id);
         }
 
-        if (RANDOM.nextFloat() < 0.20f) {
-            loot.add(new ItemStack(Items.DIAMOND_HORSE_ARMOR));
+        @Override
+        public int hashCode() {
+            return id.hashCode();
         }
 
-        if (RANDOM.nextFloat() < 0.20f) {
-            loot.add(new ItemStack(Items.SADDLE));
+        @Override
+        public String toString() {
+            return id.toString();
         }
+    }
 
-        if (RANDOM.nextFloat() < 0.15f) {
-            loot.add(new ItemStack(Items.COMPASS));
-        }
+    // Loot generation methods for each package type
+    public static void generatePackageLoot(ServerPlayer player, PackageType packageType) {
+        openPackages(player, packageType, 1);
+    }
 
-        // Music discs
-        if (RANDOM.nextFloat() < 0.20f) {
-            List<Item> musicDiscs = Arrays.asList(Items.MUSIC_DISC_13, Items.MUSIC_DISC_CAT);
-            loot.add(new ItemStack(musicDiscs.get(RANDOM.nextInt(musicDiscs.size()))));
-        }
+    /**
+     * Opens several packages of the same type as one operation: every roll goes into one buffer, identical items
+     * are merged into full stacks and the result is inserted in a single pass, so the cost follows the number of
+     * distinct items rather than the number of packages.
+     *
+     * @return the number of stacks handed to the player
+     */
+    public static int openPackages(ServerPlayer player, PackageType packageType, int count) {
+        return openPackages(player, packageType, count, null);
+    }
 
-        // Regular potions
-        if (RANDOM.nextFloat() < 0.40f) {
-            loot.add(new ItemStack(Items.POTION, 1 + RANDOM.nextInt(3))); // 1-3 potions
-        }
+    /**
+     * Opens packages as above. Sealed packages (non-null contents) skip rolling and hand out their stored contents.
+     */
+    public static int openPackages(ServerPlayer player, PackageType packageType, int count, SealedContents sealed) {
+        long start = System.nanoTime();
+        LootBuffer loot = new LootBuffer(count * 16);
+        long seed = rollPackages(player.serverLevel(), player.position(), player, packageType, count, sealed, loot);
+        if (PackageAuditLog.isEnabled()) {
+            PackageAuditLog.record(player.getUUID(), packageType, count, sealed, seed, loot);
+        } else if (sealed != null) {
+            // Seal ids in the log make a duplicated package show up as the same seal opened twice
+            LOGGER.info("Player {} opened {}x sealed {} #{}",
+                    player.getName().getString(), count, packageType, sealed.getSealId());
+        }
+        long generated = System.nanoTime();
+
+        // Give items to player; leftovers go to the configured overflow sink
+        LootDelivery.Result result = LootDelivery.deliver(player, loot);
+        PackageMetrics.recordOpen(packageType, count, generated - start, System.nanoTime() - generated, result);
+
+        LOGGER.debug("Player {} opened {}x {} and received {} stacks ({} overflowed)",
+                player.getName().getString(), count, packageType, result.stacks(), result.overflowStacks());
+        return result.stacks();
+    }
 
-        // Regular diamond hoe (no enchantments)
-        if (RANDOM.nextFloat() < 0.25f) {
-            ItemStack hoe = new ItemStack(Items.DIAMOND_HOE);
-            // Set some damage like Ancient City does (80-100%)
-            int maxDamage = hoe.getMaxDamage();
-            int damage = (int)(maxDamage * (0.8f + RANDOM.nextFloat() * 0.2f));
-            hoe.setDamageValue(damage);
-            loot.add(hoe);
+    /**
+     * Rolls the contents of packages opened at a position into the buffer. Sealed packages (non-null contents)
+     * add their stored contents. Otherwise one opening seed is drawn from the level's package random and every
+     * package is rolled from it, unless it takes a pre-rolled result, and then gets the output of its loot
+     * table, if it has one.
+     *
+     * @param opener the entity opening the packages, or null for a block
+     * @return the seal of sealed packages, otherwise the opening seed; the same seed, definitions and position
+     *         roll the same contents again
+     */
+    static long rollPackages(ServerLevel level, Vec3 origin, Entity opener, PackageType packageType, int count,
+                             SealedContents sealed, LootBuffer loot) {
+        if (sealed != null) {
+            for (int i = 0; i < count; i++) {
+                sealed.appendTo(loot);
+            }
+            return sealed.getSeal();
+        }
+
+        long seed = getPackageRandom(level, packageType).nextLong();
+        RandomSource random = new XoroshiroRandomSource(seed);
+        // Biome-aware contents depend on where the package is opened, so they are never pre-rolled. Neither are
+        // audited openings: pre-rolled results do not come from the opening seed, which the log must replay.
+        Holder<Biome> biome = level.getBiome(BlockPos.containing(origin));
+        boolean preRolled = !PackageLootTables.get(packageType).isBiomeAware() && !PackageAuditLog.isEnabled();
+        for (int i = 0; i < count; i++) {
+            // Take a roll the background worker already made; roll here only if none is ready
+            PreRolledLoot.RolledLoot rolled = preRolled ? PreRolledLoot.poll(packageType) : null;
+            if (rolled != null) {
+                rolled.appendTo(loot);
+            } else {
+                rollPackageLoot(packageType, random, loot, biome);
+            }
         }
-
-        LOGGER.info("Generated Deep Dark package with authentic Ancient City loot");
+        rollPackageTable(level, origin, opener, packageType, random, count, loot);
+        return seed;
     }
 
     /**
-     * OPTIMIZED: Now uses cached item list instead of iterating registry every time
+     * Evaluates the type's lootpackages:packages/<type> loot table (see PackageLootTables.getLootTable) once per
+     * package, with the full vanilla function and condition pipeline. Does nothing for types without a table.
+     * Tables need the level, so this part of a package is never pre-rolled.
+     *
+     * @param opener the entity opening or creating the packages, or null if there is none
      */
-    private static void generateMysteryLoot(List<ItemStack> loot) {
-        // Get cached items list (fast operation)
-        List<Item> allItems = getAllServerItems();
-
-        if (allItems.isEmpty()) {
-            LOGGER.warn("No allowed items found for mystery package! Falling back to basic items.");
-            // Fallback to basic items if cache is empty
-            loot.add(new ItemStack(Items.STICK, 1 + RANDOM.nextInt(16)));
-            loot.add(new ItemStack(Items.COBBLESTONE, 1 + RANDOM.nextInt(32)));
+    static void rollPackageTable(ServerLevel level, Vec3 origin, Entity opener, PackageType packageType,
+                                 RandomSource random, int count, LootBuffer loot) {
+        LootTable table = PackageLootTables.getLootTable(level.getServer(), packageType);
+        if (table == LootTable.EMPTY) {
             return;
         }
 
-        // Give 2-5 random items
-        int itemCount = 2 + RANDOM.nextInt(4);
-        Set<Item> chosenItems = new HashSet<>();
+        // A package is a container being opened: chest parameters, with the opener's luck for luck-based rolls
+        LootParams.Builder params = new LootParams.Builder(level)
+                .withParameter(LootContextParams.ORIGIN, origin)
+                .withOptionalParameter(LootContextParams.THIS_ENTITY, opener);
+        if (opener instanceof Player player) {
+            params.withLuck(player.getLuck());
+        }
+        // Drawn from the package random, so table rolls replay with the rest of the package
+        LootContext context = new LootContext.Builder(params.create(LootContextParamSets.CHEST))
+                .withOptionalRandomSource(random)
+                .create(Optional.empty());
+        for (int i = 0; i < count; i++) {
+            table.getRandomItemsRaw(context, loot::add);
+        }
+    }
 
-        for (int i = 0; i < itemCount && chosenItems.size() < itemCount; i++) {
-            Item randomItem = allItems.get(RANDOM.nextInt(allItems.size()));
+    /**
+     * Rolls a package's contents into the buffer. Pure computation: the result depends only on the loaded
+     * definitions and the state of the given random source.
+     */
+    public static void rollPackageLoot(PackageType packageType, RandomSource random, LootBuffer loot) {
+        rollPackageLoot(packageType, random, loot, null);
+    }
 
-            if (chosenItems.contains(randomItem)) {
-                i--;
-                continue;
+    /**
+     * Rolls a package's contents for a known location. Biome-aware tables use the theme covering the biome;
+     * a null biome, or one no theme covers, gets a weighted random theme.
+     */
+    public static void rollPackageLoot(PackageType packageType, RandomSource random, LootBuffer loot, Holder<Biome> biome) {
+        if (packageType.isTableDriven()) {
+            PackageLootTable table = PackageLootTables.get(packageType);
+            int theme = table.roll(random, loot, biome);
+            if (table.getThemeCount() > 1) {
+                LOGGER.debug("Generated {} theme for {}", table.getThemeName(theme), packageType);
             }
-
-            chosenItems.add(randomItem);
-            int amount = getRandomAmount(randomItem) / 2 + 1;
-            loot.add(new ItemStack(randomItem, Math.max(1, amount)));
+        } else {
+            generateMysteryLoot(random, loot);
         }
-
-        LOGGER.debug("Generated mystery package with {} items from cache of {} total allowed items",
-                loot.size(), allItems.size());
     }
 
-    // Utility methods
-    private boolean hasReceivedStarterPack(ServerPlayer player) {
-        CompoundTag persistentData = player.getPersistentData();
-        CompoundTag modData = persistentData.getCompound("lootpackages");
-        return modData.getBoolean(NBT_TAG_RECEIVED_STARTER);
+    /**
+     * Gets the random source package rolls are drawn from: the package type's sequence in the level's own
+     * PackageRandomSequences, seeded from the world seed, package id and dimension and saved with the level.
+     * Vanilla's level random sequences are the overworld's in every dimension, so they are not used here; a
+     * level's sequences are only drawn from its own thread.
+     */
+    public static RandomSource getPackageRandom(ServerPlayer player, PackageType packageType) {
+        return getPackageRandom(player.serverLevel(), packageType);
     }
 
-    private void markReceivedStarterPack(ServerPlayer player) {
-        CompoundTag persistentData = player.getPersistentData();
-        CompoundTag modData = persistentData.getCompound("lootpackages");
-        modData.putBoolean(NBT_TAG_RECEIVED_STARTER, true);
-        persistentData.put("lootpackages", modData);
-        LOGGER.info("Marked player {} as having received starter pack", player.getName().getString());
+    public static RandomSource getPackageRandom(ServerLevel level, PackageType packageType) {
+        return PackageRandomSequences.get(level).get(packageType);
     }
 
-    public static boolean isItemAllowed(Item item) {
-        if (EXCLUDED_ITEMS.contains(item)) {
-            return false;
+    /**
+     * Draws distinct items from the precomputed alias sampler; cost is O(items drawn), independent of the registry size
+     */
+    private static void generateMysteryLoot(RandomSource random, LootBuffer loot) {
+        // One snapshot read, so the sampler and the category index always come from the same build
+        AllowedItemSnapshot snapshot = getItemSnapshot();
+        MysterySampler sampler = snapshot.getMysterySampler();
+
+        if (sampler.isEmpty()) {
+            LOGGER.warn("No allowed items found for mystery package! Falling back to basic items.");
+            // Fallback to basic items if cache is empty
+            loot.add(BuiltInRegistries.ITEM.getId(Items.STICK), 1 + random.nextInt(16));
+            loot.add(BuiltInRegistries.ITEM.getId(Items.COBBLESTONE), 1 + random.nextInt(32));
+            return;
         }
 
-        ResourceLocation location = BuiltInRegistries.ITEM.getKey(item);
-        if (location != null) {
-            String itemName = location.getPath().toLowerCase();
-            for (String keyword : EXCLUDED_KEYWORDS) {
-                if (itemName.contains(keyword)) {
-                    return false;
+        int minItems = LootPackagesConfig.getMysteryMinItems();
+        int maxItems = LootPackagesConfig.getMysteryMaxItems();
+        int itemCount = minItems + random.nextInt(maxItems - minItems + 1);
+
+        // Stratified part first: one item from each configured category, O(1) per pick
+        ItemCategoryIndex.Category[] strata = snapshot.getMysteryStrata();
+        int[] chosen = new int[Math.max(itemCount, strata.length)];
+        int drawn = 0;
+        for (ItemCategoryIndex.Category category : strata) {
+            for (int attempt = 0; attempt < STRATUM_ATTEMPTS; attempt++) {
+                int itemId = snapshot.getCategories().pick(category, random);
+                if (itemId >= 0 && !contains(chosen, drawn, itemId)) {
+                    chosen[drawn++] = itemId;
+                    break;
                 }
             }
         }
 
-        return true;
-    }
-
-    public static int getRandomAmount(Item item) {
-        Random localRandom = new Random();
-        ResourceLocation location = BuiltInRegistries.ITEM.getKey(item);
-        if (location == null) return 1;
-
-        String itemName = location.getPath().toLowerCase();
-        ItemStack tempStack = new ItemStack(item);
-
-        if (tempStack.getMaxStackSize() == 1) {
-            return 1;
+        // The rest from the weighted sampler, skipping anything a stratum already picked
+        if (drawn < itemCount) {
+            int[] sampled = new int[itemCount];
+            int sampledCount = sampler.sampleDistinct(random, itemCount, sampled);
+            for (int i = 0; i < sampledCount && drawn < itemCount; i++) {
+                if (!contains(chosen, drawn, sampled[i])) {
+                    chosen[drawn++] = sampled[i];
+                }
+            }
         }
 
-        // Tool/armor items
-        if (itemName.contains("sword") || itemName.contains("pickaxe") || itemName.contains("axe") ||
-                itemName.contains("shovel") || itemName.contains("hoe") || itemName.contains("helmet") ||
-                itemName.contains("chestplate") || itemName.contains("leggings") || itemName.contains("boots") ||
-                itemName.contains("elytra") || itemName.contains("shield")) {
-            return 1;
+        for (int i = 0; i < drawn; i++) {
+            int amount = AmountProfile.rollAmount(chosen[i], random) / 2 + 1;
+            loot.add(chosen[i], Math.max(1, amount));
         }
 
-        // Building blocks
-        if (itemName.contains("block") || itemName.contains("plank") || itemName.contains("log") ||
-                itemName.contains("stone") || itemName.contains("dirt") || itemName.contains("sand")) {
-            return 16 + localRandom.nextInt(49);
-        }
+        LOGGER.debug("Generated mystery package with {} items from cache of {} total allowed items",
+                drawn, sampler.size());
+    }
 
-        // Materials
-        if (itemName.contains("ingot") || itemName.contains("gem") || itemName.contains("nugget")) {
-            return 4 + localRandom.nextInt(13);
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        // Food
-        if (itemName.contains("bread") || itemName.contains("cooked") || itemName.contains("food")) {
-            return 2 + localRandom.nextInt(11);
+    /**
+     * Moves the starter flag from the player's persistent NBT into the player data attachment.
+     */
+    private static void migrateLegacyStarterFlag(ServerPlayer player) {
+        CompoundTag persistentData = player.getPersistentData();
+        if (!persistentData.contains(LEGACY_DATA_KEY)) {
+            return;
+        }
+        if (persistentData.getCompound(LEGACY_DATA_KEY).getBoolean(LEGACY_TAG_RECEIVED_STARTER)) {
+            player.setData(PLAYER_DATA, player.getData(PLAYER_DATA).withGrant(PlayerPackageData.STARTER_GRANT));
+            PackageRecipients.get(player.server).record(PlayerPackageData.STARTER_GRANT, player.getUUID());
         }
+        persistentData.remove(LEGACY_DATA_KEY);
+    }
+
+    /**
+     * Checks an item against the compiled exclusion rules of the current snapshot
+     */
+    public static boolean isItemAllowed(Item item) {
+        return !getItemSnapshot().getExclusions().isExcluded(item);
+    }
 
-        // Default
-        int desiredAmount = 1 + localRandom.nextInt(8);
-        return Math.min(desiredAmount, tempStack.getMaxStackSize());
+    /**
+     * Rolls a stack size from the item's precomputed amount profile
+     */
+    public static int getRandomAmount(Item item, RandomSource random) {
+        return AmountProfile.rollAmount(BuiltInRegistries.ITEM.getId(item), random);
     }
 
     public static String getItemName(Item item) {
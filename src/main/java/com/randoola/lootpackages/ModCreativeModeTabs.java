@@ -3,7 +3,6 @@ package com.randoola.lootpackages;
 import net.minecraft.core.registries.Registries;
 import net.minecraft.network.chat.Component;
 import net.minecraft.world.item.CreativeModeTab;
-import net.minecraft.world.item.ItemStack;
 import net.neoforged.bus.api.IEventBus;
 import net.neoforged.neoforge.registries.DeferredRegister;
 
@@ -16,18 +15,13 @@ public class ModCreativeModeTabs {
     public static final Supplier<CreativeModeTab> LOOT_PACKAGES_TAB = CREATIVE_MODE_TABS.register("loot_packages_tab",
             () -> CreativeModeTab.builder()
                     .title(Component.translatable("itemGroup.lootpackages.loot_packages"))
-                    .icon(() -> new ItemStack(LootPackagesMod.STARTER_SURVIVAL_PACKAGE.get()))
+                    .icon(() -> PackageItem.create(LootPackagesMod.PackageType.STARTER_SURVIVAL))
                     .displayItems((parameters, output) -> {
-                        // Add all your loot packages here
-                        output.accept(LootPackagesMod.STARTER_SURVIVAL_PACKAGE.get());
-                        output.accept(LootPackagesMod.DUNGEON_LOOT_PACKAGE.get());
-                        output.accept(LootPackagesMod.TREASURE_PACKAGE.get());
-                        output.accept(LootPackagesMod.NETHER_LOOT_PACKAGE.get());
-                        output.accept(LootPackagesMod.END_LOOT_PACKAGE.get());
-                        output.accept(LootPackagesMod.MOB_DROP_PACKAGE.get());
-                        output.accept(LootPackagesMod.BIOME_PACKAGE.get());
-                        output.accept(LootPackagesMod.MYSTERY_PACKAGE.get());
-                        output.accept(LootPackagesMod.DEEP_DARK_PACKAGE.get());
+                        // One entry per loaded package type; rebuilt when the server sends new definitions
+                        for (LootPackagesMod.PackageType packageType : PackageDisplays.types()) {
+                            output.accept(PackageItem.create(packageType));
+                        }
+                        output.accept(LootPackagesMod.PACKAGE_OPENER_ITEM.get());
                     })
                     .build());
 
@@ -0,0 +1,222 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.util.RandomSource;
+
+import java.util.Arrays;
+
+/**
+ * Alias-method sampler over the allowed mystery items, stored as registry ids. Items with weight 0 are left out.
+ *
+ * Single draws are O(1) (Vose's alias method). Distinct draws are sampling without replacement and never
+ * retry: unweighted samplers use Floyd's algorithm, O(k) for k items; weighted samplers descend a sum tree
+ * over the weights and take each chosen item's weight out of it, so every draw is proportional to the weights
+ * still available, O(k log n) in total.
+ *
+ * The sum tree is shared and never modified; each thread draws on its own copy, and a draw puts back exactly
+ * the nodes it changed, copied from the shared tree, so nothing drifts and nothing is allocated per draw.
+ */
+public final class MysterySampler {
+
+    public static final MysterySampler EMPTY = new MysterySampler(new int[0], null);
+
+    private final int[] itemIds;
+    private final float[] probability;
+    private final int[] alias;
+    private final boolean weighted;
+    // Weighted only: heap-ordered sums, node i covering children 2i and 2i + 1, leaves from leafOffset on
+    private final double[] sumTree;
+    private final int leafOffset;
+    private final ThreadLocal<double[]> drawTrees;
+
+    /**
+     * @param itemIds registry ids of the items that can be drawn
+     * @param weights per-item non-negative weights aligned with itemIds, or null for a uniform draw
+     */
+    public MysterySampler(int[] itemIds, double[] weights) {
+        if (weights != null) {
+            // Weight 0 means never drawn, so those items are not part of the table at all
+            int kept = 0;
+            int[] keptIds = new int[itemIds.length];
+            double[] keptWeights = new double[itemIds.length];
+            for (int i = 0; i < itemIds.length; i++) {
+                if (weights[i] > 0.0) {
+                    keptIds[kept] = itemIds[i];
+                    keptWeights[kept] = weights[i];
+                    kept++;
+                }
+            }
+            itemIds = Arrays.copyOf(keptIds, kept);
+            weights = Arrays.copyOf(keptWeights, kept);
+        }
+        this.itemIds = itemIds;
+        this.weighted = weights != null && !isUniform(weights);
+
+        int n = itemIds.length;
+        this.probability = new float[n];
+        this.alias = new int[n];
+        if (weighted) {
+            buildAliasTable(weights);
+            this.leafOffset = Integer.highestOneBit(Math.max(1, n - 1)) << 1;
+            this.sumTree = buildSumTree(weights, leafOffset);
+            this.drawTrees = ThreadLocal.withInitial(sumTree::clone);
+        } else {
+            this.leafOffset = 0;
+            this.sumTree = null;
+            this.drawTrees = null;
+        }
+    }
+
+    public int size() {
+        return itemIds.length;
+    }
+
+    public boolean isEmpty() {
+        return itemIds.length == 0;
+    }
+
+    /**
+     * Draws one item registry id.
+     */
+    public int sample(RandomSource random) {
+        return itemIds[sampleIndex(random)];
+    }
+
+    /**
+     * Draws up to count distinct item registry ids into out.
+     *
+     * @return the number of ids written, min(count, size())
+     */
+    public int sampleDistinct(RandomSource random, int count, int[] out) {
+        int n = itemIds.length;
+        int k = Math.min(count, Math.min(n, out.length));
+
+        if (!weighted) {
+            // Floyd's algorithm over dense indices: exactly k draws, no retries
+            for (int j = n - k, filled = 0; j < n; j++, filled++) {
+                int t = random.nextInt(j + 1);
+                out[filled] = contains(out, filled, t) ? j : t;
+            }
+        } else {
+            double[] tree = drawTrees.get();
+            for (int filled = 0; filled < k; filled++) {
+                int index = descend(tree, random.nextDouble() * tree[1]);
+                out[filled] = index;
+                // Summed from the children rather than subtracted, so a subtree with nothing left is exactly 0
+                tree[leafOffset + index] = 0.0;
+                for (int node = (leafOffset + index) >>> 1; node >= 1; node >>>= 1) {
+                    tree[node] = tree[node << 1] + tree[(node << 1) + 1];
+                }
+            }
+            // Restore the copy for the next draw on this thread
+            for (int filled = 0; filled < k; filled++) {
+                for (int node = leafOffset + out[filled]; node >= 1; node >>>= 1) {
+                    tree[node] = sumTree[node];
+                }
+            }
+        }
+
+        for (int i = 0; i < k; i++) {
+            out[i] = itemIds[out[i]];
+        }
+        return k;
+    }
+
+    private int sampleIndex(RandomSource random) {
+        int column = random.nextInt(itemIds.length);
+        if (!weighted) {
+            return column;
+        }
+        return random.nextFloat() < probability[column] ? column : alias[column];
+    }
+
+    /**
+     * Finds the leaf whose weight range holds target. Removed items have weight 0 and are never landed on,
+     * even when rounding pushes target to the edge of a subtree.
+     */
+    private int descend(double[] tree, double target) {
+        int node = 1;
+        while (node < leafOffset) {
+            int left = node << 1;
+            if ((target < tree[left] && tree[left] > 0.0) || tree[left + 1] <= 0.0) {
+                node = left;
+            } else {
+                target -= tree[left];
+                node = left + 1;
+            }
+        }
+        return node - leafOffset;
+    }
+
+    private static double[] buildSumTree(double[] weights, int leafOffset) {
+        double[] tree = new double[leafOffset << 1];
+        System.arraycopy(weights, 0, tree, leafOffset, weights.length);
+        for (int node = leafOffset - 1; node >= 1; node--) {
+            tree[node] = tree[node << 1] + tree[(node << 1) + 1];
+        }
+        return tree;
+    }
+
+    private void buildAliasTable(double[] weights) {
+        int n = weights.length;
+        double total = 0.0;
+        for (double weight : weights) {
+            total += weight;
+        }
+
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+
+            probability[less] = (float) scaled[less];
+            alias[less] = more;
+
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+
+        // Anything left over is full due to rounding
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1.0f;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1.0f;
+        }
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isUniform(double[] weights) {
+        for (int i = 1; i < weights.length; i++) {
+            if (weights[i] != weights[0]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,95 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.saveddata.SavedData;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Server-side per-player store for package loot that did not fit into the inventory.
+ * Saved with the overworld so nothing is lost across restarts.
+ */
+public class OverflowMailbox extends SavedData {
+
+    private static final String DATA_NAME = LootPackagesMod.MODID + "_mailbox";
+
+    private final Map<UUID, List<ItemStack>> mailboxes = new HashMap<>();
+
+    public static OverflowMailbox get(MinecraftServer server) {
+        return server.overworld().getDataStorage().computeIfAbsent(
+                new SavedData.Factory<>(OverflowMailbox::new, OverflowMailbox::load, null), DATA_NAME);
+    }
+
+    /**
+     * Stores as many stacks as the configured capacity allows.
+     *
+     * @return the stacks that did not fit
+     */
+    public List<ItemStack> deposit(UUID player, List<ItemStack> stacks) {
+        List<ItemStack> mailbox = mailboxes.computeIfAbsent(player, uuid -> new ArrayList<>());
+        int free = Math.max(0, LootPackagesConfig.getMailboxCapacity() - mailbox.size());
+        int accepted = Math.min(free, stacks.size());
+
+        mailbox.addAll(stacks.subList(0, accepted));
+        if (accepted > 0) {
+            setDirty();
+        }
+        return stacks.subList(accepted, stacks.size());
+    }
+
+    /**
+     * Removes and returns everything stored for the player.
+     */
+    public List<ItemStack> takeAll(UUID player) {
+        List<ItemStack> mailbox = mailboxes.remove(player);
+        if (mailbox == null) {
+            return List.of();
+        }
+        setDirty();
+        return mailbox;
+    }
+
+    public int size(UUID player) {
+        List<ItemStack> mailbox = mailboxes.get(player);
+        return mailbox == null ? 0 : mailbox.size();
+    }
+
+    @Override
+    public CompoundTag save(CompoundTag tag, HolderLookup.Provider registries) {
+        CompoundTag players = new CompoundTag();
+        mailboxes.forEach((uuid, stacks) -> {
+            if (stacks.isEmpty()) {
+                return;
+            }
+            ListTag list = new ListTag();
+            for (ItemStack stack : stacks) {
+                list.add(stack.save(registries));
+            }
+            players.put(uuid.toString(), list);
+        });
+        tag.put("players", players);
+        return tag;
+    }
+
+    private static OverflowMailbox load(CompoundTag tag, HolderLookup.Provider registries) {
+        OverflowMailbox mailbox = new OverflowMailbox();
+        CompoundTag players = tag.getCompound("players");
+        for (String key : players.getAllKeys()) {
+            List<ItemStack> stacks = new ArrayList<>();
+            for (Tag stackTag : players.getList(key, Tag.TAG_COMPOUND)) {
+                ItemStack.parse(registries, stackTag).ifPresent(stacks::add);
+            }
+            mailbox.mailboxes.put(UUID.fromString(key), stacks);
+        }
+        return mailbox;
+    }
+}
@@ -0,0 +1,80 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.ChatFormatting;
+import net.minecraft.core.component.DataComponents;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.InteractionHand;
+import net.minecraft.world.InteractionResultHolder;
+import net.minecraft.world.entity.player.Player;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.TooltipFlag;
+import net.minecraft.world.item.component.ItemContainerContents;
+import net.minecraft.world.level.Level;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds loot that did not fit into a player's inventory. One overflow package replaces up to CAPACITY
+ * dropped item entities; using it hands the stored stacks back out.
+ */
+public class OverflowPackageItem extends Item {
+
+    public static final int CAPACITY = 64;
+
+    public OverflowPackageItem() {
+        super(new Item.Properties().stacksTo(1));
+    }
+
+    public static ItemStack pack(List<ItemStack> stacks) {
+        ItemStack overflowPackage = new ItemStack(LootPackagesMod.OVERFLOW_PACKAGE.get());
+        overflowPackage.set(DataComponents.CONTAINER, ItemContainerContents.fromItems(stacks));
+        return overflowPackage;
+    }
+
+    @Override
+    public InteractionResultHolder<ItemStack> use(Level level, Player player, InteractionHand hand) {
+        ItemStack itemStack = player.getItemInHand(hand);
+
+        if (!level.isClientSide && player instanceof ServerPlayer serverPlayer) {
+            ItemContainerContents contents = itemStack.getOrDefault(DataComponents.CONTAINER, ItemContainerContents.EMPTY);
+            itemStack.shrink(1);
+
+            List<ItemStack> leftovers = new ArrayList<>();
+            for (ItemStack stack : contents.nonEmptyItemsCopy()) {
+                serverPlayer.getInventory().add(stack);
+                if (!stack.isEmpty()) {
+                    leftovers.add(stack);
+                }
+            }
+
+            // Whatever still does not fit is repacked rather than scattered on the ground
+            if (!leftovers.isEmpty()) {
+                ItemStack repacked = pack(leftovers);
+                if (itemStack.isEmpty()) {
+                    return InteractionResultHolder.success(repacked);
+                }
+                if (!serverPlayer.getInventory().add(repacked)) {
+                    serverPlayer.drop(repacked, false);
+                }
+            }
+
+            return InteractionResultHolder.success(itemStack);
+        }
+
+        return InteractionResultHolder.pass(itemStack);
+    }
+
+    @Override
+    public void appendHoverText(ItemStack stack, Item.TooltipContext context, List<Component> tooltip, TooltipFlag flag) {
+        ItemContainerContents contents = stack.getOrDefault(DataComponents.CONTAINER, ItemContainerContents.EMPTY);
+        int stacks = 0;
+        for (ItemStack ignored : contents.nonEmptyItems()) {
+            stacks++;
+        }
+        tooltip.add(Component.translatable("tooltip.lootpackages.overflow_package.contents", stacks).withStyle(ChatFormatting.GRAY));
+        tooltip.add(Component.translatable("tooltip.lootpackages.overflow_package.use").withStyle(ChatFormatting.YELLOW));
+    }
+}
@@ -0,0 +1,327 @@
+package com.randoola.lootpackages;
+
+import it.unimi.dsi.fastutil.ints.Int2IntLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Opt-in binary audit log of package openings (audit.enabled), for investigating dupes: who opened which
+ * package when, with which seal or opening seed, and exactly what came out. Audited openings are always rolled
+ * from their opening seed, never pre-rolled, so the seed and the definitions at the time replay the roll.
+ *
+ * The server thread only copies the rolled items into a record and enqueues it on a lock-free queue. One
+ * background writer drains the queue into memory-mapped segment files under <world>/lootpackages_audit,
+ * starting a new segment when the current one is full and deleting the oldest beyond audit.maxSegments.
+ *
+ * Each segment audit-<millis>.bin is preallocated and filled with fixed-width RECORD_BYTES records; the first
+ * all-zero record marks the end. Item and package ids are the running server's registry ids and type
+ * indices, so every segment has an audit-<millis>.names text file mapping them to names ("item <id> <name>",
+ * "package <index> <id>"). Segments started in the same millisecond get a -<n> suffix. Read segments offline
+ * with PackageAuditReader.
+ */
+public final class PackageAuditLog {
+
+    // Record layout, shared with PackageAuditReader
+    static final int RECORD_BYTES = 128;
+    static final int OFFSET_TIMESTAMP = 0;
+    static final int OFFSET_PLAYER_MOST = 8;
+    static final int OFFSET_PLAYER_LEAST = 16;
+    static final int OFFSET_SEED = 24;
+    static final int OFFSET_PACKAGE = 32;
+    static final int OFFSET_PACKAGES_OPENED = 36;
+    static final int OFFSET_FLAGS = 38;
+    static final int OFFSET_PAIR_COUNT = 39;
+    static final int OFFSET_PAIRS = 40;
+    // Each pair is one long: item id in the high half, count in the low half
+    static final int PAIRS_PER_RECORD = (RECORD_BYTES - OFFSET_PAIRS) / Long.BYTES;
+
+    // The seed field holds the package's seal; without this flag it holds the opening seed
+    static final int FLAG_SEALED = 1;
+    // More items of the opening before it; same header, next pairs
+    static final int FLAG_CONTINUATION = 2;
+    // Opened by a Package Opener block; the player is the nil UUID
+    static final int FLAG_AUTOMATED = 4;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    // Bounds the memory held by a writer that cannot keep up (or a full disk); beyond it records are dropped
+    private static final int MAX_PENDING = 65536;
+
+    private static final ConcurrentLinkedQueue<Entry> QUEUE = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger PENDING = new AtomicInteger();
+    private static final LongAdder DROPPED = new LongAdder();
+
+    private static volatile Thread worker;
+    private static volatile boolean running;
+
+    private PackageAuditLog() {
+    }
+
+    /**
+     * One opening as enqueued by the server thread. Items are copied from the loot buffer as rolled;
+     * duplicates are merged by the writer.
+     */
+    private record Entry(long timestamp, UUID player, LootPackagesMod.PackageType packageType, int packages,
+                         long seed, int flags, int[] items, int[] counts) {
+    }
+
+    public static boolean isEnabled() {
+        return worker != null;
+    }
+
+    /**
+     * Records an opening by a player. The seed is the one LootPackagesMod.rollPackages returned: the seal for
+     * sealed contents, otherwise the opening seed the contents were rolled from.
+     */
+    public static void record(UUID player, LootPackagesMod.PackageType packageType, int packages,
+                              SealedContents sealed, long seed, LootBuffer loot) {
+        enqueue(player, packageType, packages, sealed, seed, loot, 0);
+    }
+
+    /**
+     * Records an opening by a Package Opener block.
+     */
+    public static void recordAutomated(LootPackagesMod.PackageType packageType, int packages, SealedContents sealed,
+                                       long seed, LootBuffer loot) {
+        enqueue(new UUID(0L, 0L), packageType, packages, sealed, seed, loot, FLAG_AUTOMATED);
+    }
+
+    private static void enqueue(UUID player, LootPackagesMod.PackageType packageType, int packages,
+                                SealedContents sealed, long seed, LootBuffer loot, int flags) {
+        if (worker == null) {
+            return;
+        }
+        if (packageType.getIndex() == LootPackagesMod.PackageType.NO_INDEX) {
+            // Only loaded definitions are opened, so a detached type has nothing to audit; the writer needs an index
+            LootPackagesMod.LOGGER.warn("Not auditing opening of unknown package type {}", packageType);
+            return;
+        }
+        if (PENDING.incrementAndGet() > MAX_PENDING) {
+            PENDING.decrementAndGet();
+            DROPPED.increment();
+            return;
+        }
+
+        // Stacks with components are logged by item and count only
+        int size = loot.size();
+        int[] items = new int[size + loot.stacks().size()];
+        int[] counts = new int[items.length];
+        for (int i = 0; i < size; i++) {
+            items[i] = loot.itemId(i);
+            counts[i] = loot.count(i);
+        }
+        for (int i = 0; i < loot.stacks().size(); i++) {
+            ItemStack stack = loot.stacks().get(i);
+            items[size + i] = BuiltInRegistries.ITEM.getId(stack.getItem());
+            counts[size + i] = stack.getCount();
+        }
+        QUEUE.offer(new Entry(System.currentTimeMillis(), player, packageType, packages,
+                seed, flags | (sealed != null ? FLAG_SEALED : 0), items, counts));
+    }
+
+    public static long getDropped() {
+        return DROPPED.sum();
+    }
+
+    public static synchronized void start(Path directory) {
+        if (worker != null || !LootPackagesConfig.isAuditEnabled()) {
+            return;
+        }
+        Writer writer = new Writer(directory, LootPackagesConfig.getAuditSegmentBytes(), LootPackagesConfig.getAuditMaxSegments());
+        running = true;
+        worker = Thread.ofPlatform()
+                .name("LootPackages audit writer")
+                .daemon(true)
+                .start(writer::run);
+        LootPackagesMod.LOGGER.info("Package audit log enabled, writing to {}", directory);
+    }
+
+    /**
+     * Stops the writer after it has written everything queued so far.
+     */
+    public static synchronized void stop() {
+        Thread thread = worker;
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        worker = null;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (DROPPED.sum() > 0) {
+            LootPackagesMod.LOGGER.warn("Package audit log dropped {} records", DROPPED.sum());
+        }
+    }
+
+    /**
+     * The writer thread's state: the open segment and what its names file already lists.
+     */
+    private static final class Writer {
+        private final Path directory;
+        private final long segmentBytes;
+        private final int maxSegments;
+
+        private FileChannel channel;
+        private MappedByteBuffer segment;
+        private BufferedWriter names;
+        private final BitSet namedPackages = new BitSet();
+        private final Int2IntLinkedOpenHashMap merged = new Int2IntLinkedOpenHashMap();
+
+        private Writer(Path directory, long segmentBytes, int maxSegments) {
+            this.directory = directory;
+            // Whole records only, so a record never straddles two segments
+            this.segmentBytes = segmentBytes - segmentBytes % RECORD_BYTES;
+            this.maxSegments = maxSegments;
+        }
+
+        private void run() {
+            try {
+                Files.createDirectories(directory);
+                while (running || !QUEUE.isEmpty()) {
+                    Entry entry = QUEUE.poll();
+                    if (entry == null) {
+                        LockSupport.parkNanos(IDLE_PARK_NANOS);
+                        continue;
+                    }
+                    PENDING.decrementAndGet();
+                    write(entry);
+                }
+            } catch (IOException | RuntimeException e) {
+                LootPackagesMod.LOGGER.error("Package audit log failed; no further openings are recorded", e);
+                worker = null;
+                DROPPED.add(PENDING.getAndSet(0));
+                QUEUE.clear();
+            } finally {
+                closeSegment();
+            }
+        }
+
+        private void write(Entry entry) throws IOException {
+            // Merge repeated items (several packages, or several entries rolling the same item)
+            merged.clear();
+            for (int i = 0; i < entry.items().length; i++) {
+                merged.addTo(entry.items()[i], entry.counts()[i]);
+            }
+            int records = Math.max(1, (merged.size() + PAIRS_PER_RECORD - 1) / PAIRS_PER_RECORD);
+            if (segment == null || segment.remaining() < records * RECORD_BYTES) {
+                openSegment();
+            }
+            int packageIndex = entry.packageType().getIndex();
+            if (!namedPackages.get(packageIndex)) {
+                namedPackages.set(packageIndex);
+                names.write("package " + packageIndex + " " + entry.packageType().getId());
+                names.newLine();
+                names.flush();
+            }
+
+            var pairs = merged.int2IntEntrySet().fastIterator();
+            for (int record = 0; record < records; record++) {
+                int start = segment.position();
+                segment.putLong(start + OFFSET_TIMESTAMP, entry.timestamp());
+                segment.putLong(start + OFFSET_PLAYER_MOST, entry.player().getMostSignificantBits());
+                segment.putLong(start + OFFSET_PLAYER_LEAST, entry.player().getLeastSignificantBits());
+                segment.putLong(start + OFFSET_SEED, entry.seed());
+                segment.putInt(start + OFFSET_PACKAGE, packageIndex);
+                segment.putShort(start + OFFSET_PACKAGES_OPENED, (short) Math.min(entry.packages(), Short.MAX_VALUE));
+                segment.put(start + OFFSET_FLAGS, (byte) (entry.flags() | (record > 0 ? FLAG_CONTINUATION : 0)));
+
+                int written = 0;
+                while (written < PAIRS_PER_RECORD && pairs.hasNext()) {
+                    Int2IntMap.Entry pair = pairs.next();
+                    segment.putLong(start + OFFSET_PAIRS + written * Long.BYTES,
+                            (long) pair.getIntKey() << 32 | (pair.getIntValue() & 0xFFFFFFFFL));
+                    written++;
+                }
+                segment.put(start + OFFSET_PAIR_COUNT, (byte) written);
+                segment.position(start + RECORD_BYTES);
+            }
+        }
+
+        private void openSegment() throws IOException {
+            closeSegment();
+            long now = System.currentTimeMillis();
+            String name = "audit-" + now;
+            // A segment from the same millisecond (a quick restart, or a full one) already has the name
+            for (int sequence = 1; ; sequence++) {
+                try {
+                    channel = FileChannel.open(directory.resolve(name + ".bin"), StandardOpenOption.CREATE_NEW,
+                            StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    break;
+                } catch (FileAlreadyExistsException e) {
+                    name = "audit-" + now + "-" + sequence;
+                }
+            }
+            // Mapping past the end grows the file; the untouched tail stays zero and marks the end for readers
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+
+            names = Files.newBufferedWriter(directory.resolve(name + ".names"), StandardCharsets.UTF_8);
+            namedPackages.clear();
+            for (Item item : BuiltInRegistries.ITEM) {
+                names.write("item " + BuiltInRegistries.ITEM.getId(item) + " " + BuiltInRegistries.ITEM.getKey(item));
+                names.newLine();
+            }
+            names.flush();
+
+            deleteOldSegments();
+        }
+
+        private void closeSegment() {
+            try {
+                if (segment != null) {
+                    segment.force();
+                    segment = null;
+                }
+                if (channel != null) {
+                    channel.close();
+                    channel = null;
+                }
+                if (names != null) {
+                    names.close();
+                    names = null;
+                }
+            } catch (IOException e) {
+                LootPackagesMod.LOGGER.error("Failed to close package audit segment", e);
+            }
+        }
+
+        private void deleteOldSegments() throws IOException {
+            List<Path> segments;
+            try (Stream<Path> files = Files.list(directory)) {
+                segments = files.filter(file -> file.getFileName().toString().startsWith("audit-")
+                                && file.getFileName().toString().endsWith(".bin"))
+                        .sorted(PackageAuditReader.SEGMENT_ORDER)
+                        .toList();
+            }
+            for (int i = 0; i < segments.size() - maxSegments; i++) {
+                Path segmentFile = segments.get(i);
+                String base = segmentFile.getFileName().toString();
+                Files.deleteIfExists(segmentFile);
+                Files.deleteIfExists(directory.resolve(base.substring(0, base.length() - ".bin".length()) + ".names"));
+            }
+        }
+    }
+}
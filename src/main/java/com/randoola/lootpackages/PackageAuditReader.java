@@ -0,0 +1,221 @@
+package com.randoola.lootpackages;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Offline reader for the files written by PackageAuditLog. Needs nothing but the JDK, so it runs against a
+ * copied audit directory without a server:
+ *
+ *   java -cp lootpackages.jar com.randoola.lootpackages.PackageAuditReader <dir|file.bin>
+ *        [--player <uuid>] [--from <time>] [--to <time>] [--seal <seal id>]
+ *
+ * Times are ISO instants (2026-01-31T18:00:00Z) or local date-times (2026-01-31T18:00). Prints one line per
+ * opening, oldest segment first; openings by Package Opener blocks show "opener" as the player. Each opening
+ * shows its seal, or the opening seed its contents were rolled from.
+ */
+public final class PackageAuditReader {
+
+    private static final UUID NIL = new UUID(0L, 0L);
+
+    /**
+     * Oldest first: segments are named audit-<millis>.bin, or audit-<millis>-<n>.bin when several were started
+     * in the same millisecond.
+     */
+    static final Comparator<Path> SEGMENT_ORDER = Comparator
+            .comparingLong((Path file) -> segmentNamePart(file, 0))
+            .thenComparingLong(file -> segmentNamePart(file, 1));
+
+    private final UUID player;
+    private final long from;
+    private final long to;
+    private final Long seal;
+    private final PrintStream out;
+
+    private PackageAuditReader(UUID player, long from, long to, Long seal, PrintStream out) {
+        this.player = player;
+        this.from = from;
+        this.to = to;
+        this.seal = seal;
+        this.out = out;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0 || args.length % 2 == 0) {
+            usage();
+            return;
+        }
+        UUID player = null;
+        long from = Long.MIN_VALUE;
+        long to = Long.MAX_VALUE;
+        Long seal = null;
+        try {
+            for (int i = 1; i < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--player" -> player = UUID.fromString(args[i + 1]);
+                    case "--from" -> from = parseTime(args[i + 1]);
+                    case "--to" -> to = parseTime(args[i + 1]);
+                    case "--seal" -> seal = Long.parseUnsignedLong(args[i + 1].replace("#", ""), 16);
+                    default -> {
+                        usage();
+                        return;
+                    }
+                }
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.err.println(e.getMessage());
+            usage();
+            return;
+        }
+
+        PackageAuditReader reader = new PackageAuditReader(player, from, to, seal, System.out);
+        Path path = Path.of(args[0]);
+        if (Files.isDirectory(path)) {
+            List<Path> segments;
+            try (Stream<Path> files = Files.list(path)) {
+                segments = files.filter(file -> file.getFileName().toString().endsWith(".bin")).sorted(SEGMENT_ORDER).toList();
+            }
+            for (Path segment : segments) {
+                reader.read(segment);
+            }
+        } else {
+            reader.read(path);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("Usage: PackageAuditReader <dir|file.bin> [--player <uuid>] [--from <time>] [--to <time>] [--seal <seal id>]");
+    }
+
+    private static long segmentNamePart(Path file, int part) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith("audit-") || !name.endsWith(".bin")) {
+            return 0L;
+        }
+        String[] parts = name.substring("audit-".length(), name.length() - ".bin".length()).split("-");
+        try {
+            return part < parts.length ? Long.parseLong(parts[part]) : 0L;
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    private static long parseTime(String time) {
+        try {
+            return Instant.parse(time).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return LocalDateTime.parse(time).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+    }
+
+    private void read(Path segment) throws IOException {
+        String base = segment.getFileName().toString();
+        Names names = Names.read(segment.resolveSibling(base.substring(0, base.length() - ".bin".length()) + ".names"));
+
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        StringBuilder line = null;
+        for (int start = 0; start + PackageAuditLog.RECORD_BYTES <= buffer.capacity(); start += PackageAuditLog.RECORD_BYTES) {
+            long timestamp = buffer.getLong(start + PackageAuditLog.OFFSET_TIMESTAMP);
+            if (timestamp == 0L) {
+                // Preallocated tail; the writer stopped here
+                break;
+            }
+            int flags = buffer.get(start + PackageAuditLog.OFFSET_FLAGS);
+            if ((flags & PackageAuditLog.FLAG_CONTINUATION) == 0) {
+                if (line != null) {
+                    out.println(line);
+                }
+                line = matches(buffer, start, timestamp, flags) ? header(buffer, start, timestamp, flags, names) : null;
+            }
+            if (line != null) {
+                appendItems(line, buffer, start, names);
+            }
+        }
+        if (line != null) {
+            out.println(line);
+        }
+    }
+
+    private boolean matches(MappedByteBuffer buffer, int start, long timestamp, int flags) {
+        if (timestamp < from || timestamp > to) {
+            return false;
+        }
+        if (player != null && (buffer.getLong(start + PackageAuditLog.OFFSET_PLAYER_MOST) != player.getMostSignificantBits()
+                || buffer.getLong(start + PackageAuditLog.OFFSET_PLAYER_LEAST) != player.getLeastSignificantBits())) {
+            return false;
+        }
+        return seal == null || ((flags & PackageAuditLog.FLAG_SEALED) != 0
+                && buffer.getLong(start + PackageAuditLog.OFFSET_SEED) == seal);
+    }
+
+    private static StringBuilder header(MappedByteBuffer buffer, int start, long timestamp, int flags, Names names) {
+        UUID uuid = new UUID(buffer.getLong(start + PackageAuditLog.OFFSET_PLAYER_MOST),
+                buffer.getLong(start + PackageAuditLog.OFFSET_PLAYER_LEAST));
+        StringBuilder line = new StringBuilder()
+                .append(Instant.ofEpochMilli(timestamp)).append(' ')
+                .append((flags & PackageAuditLog.FLAG_AUTOMATED) != 0 && uuid.equals(NIL) ? "opener" : uuid).append(' ')
+                .append(buffer.getShort(start + PackageAuditLog.OFFSET_PACKAGES_OPENED)).append("x ")
+                .append(names.packageName(buffer.getInt(start + PackageAuditLog.OFFSET_PACKAGE)));
+        String seed = String.format("%016x", buffer.getLong(start + PackageAuditLog.OFFSET_SEED));
+        line.append((flags & PackageAuditLog.FLAG_SEALED) != 0 ? " sealed #" : " seed ").append(seed);
+        return line.append(':');
+    }
+
+    private static void appendItems(StringBuilder line, MappedByteBuffer buffer, int start, Names names) {
+        int pairs = buffer.get(start + PackageAuditLog.OFFSET_PAIR_COUNT);
+        for (int i = 0; i < pairs; i++) {
+            long pair = buffer.getLong(start + PackageAuditLog.OFFSET_PAIRS + i * Long.BYTES);
+            line.append(line.charAt(line.length() - 1) == ':' ? " " : ", ")
+                    .append(names.itemName((int) (pair >>> 32))).append(" x").append((int) pair);
+        }
+    }
+
+    /**
+     * The id to name mapping of one segment.
+     */
+    private record Names(Map<Integer, String> items, Map<Integer, String> packages) {
+
+        static Names read(Path file) throws IOException {
+            Map<Integer, String> items = new HashMap<>();
+            Map<Integer, String> packages = new HashMap<>();
+            if (Files.exists(file)) {
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    String[] parts = line.split(" ", 3);
+                    if (parts.length != 3) {
+                        continue;
+                    }
+                    (parts[0].equals("item") ? items : packages).put(Integer.parseInt(parts[1]), parts[2]);
+                }
+            }
+            return new Names(items, packages);
+        }
+
+        String itemName(int id) {
+            return items.getOrDefault(id, "item#" + id);
+        }
+
+        String packageName(int index) {
+            return packages.getOrDefault(index, "package#" + index);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.randoola.lootpackages;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.mojang.serialization.JsonOps;
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.ComponentSerialization;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.util.GsonHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How a package type looks: its item name, description lines and item model variant, from the "display" object
+ * of its definition. Synced to clients with the definitions, since the item itself is the same for every type.
+ *
+ * Built once per load; the components are reused every frame, and translatable ones cache their text per language.
+ *
+ * @param model the lootpackages:model item property value picking the item model, 0 for the default model
+ * @param id    the type id line of advanced tooltips
+ */
+public record PackageDisplay(Component name, List<Component> tooltip, int model, Component id) {
+
+    public static final StreamCodec<RegistryFriendlyByteBuf, PackageDisplay> STREAM_CODEC = StreamCodec.composite(
+            ComponentSerialization.STREAM_CODEC, PackageDisplay::name,
+            ComponentSerialization.STREAM_CODEC.apply(ByteBufCodecs.list()), PackageDisplay::tooltip,
+            ByteBufCodecs.VAR_INT, PackageDisplay::model,
+            ComponentSerialization.STREAM_CODEC, PackageDisplay::id,
+            PackageDisplay::new);
+
+    /**
+     * Shown for a type with no loaded definition, such as a package whose datapack was removed.
+     */
+    public static PackageDisplay unknown(LootPackagesMod.PackageType packageType) {
+        return new PackageDisplay(Component.translatable("item.lootpackages.package.unknown", packageType.toString()),
+                List.of(), 0, idLine(packageType));
+    }
+
+    /**
+     * Parses the optional "display" object of a definition. Names and lines are text components in the usual
+     * JSON form; the name defaults to the translation key package.<namespace>.<path>.
+     */
+    public static PackageDisplay parse(LootPackagesMod.PackageType packageType, JsonObject definition) {
+        JsonObject display = GsonHelper.getAsJsonObject(definition, "display", new JsonObject());
+
+        Component name = display.has("name")
+                ? parseComponent(display.get("name"))
+                : Component.translatable("package." + packageType.getId().getNamespace() + "." + packageType.getId().getPath());
+
+        List<Component> tooltip = new ArrayList<>();
+        for (JsonElement line : GsonHelper.getAsJsonArray(display, "tooltip", new com.google.gson.JsonArray())) {
+            tooltip.add(parseComponent(line));
+        }
+
+        int model = GsonHelper.getAsInt(display, "model", 0);
+        if (model < 0) {
+            throw new JsonParseException("Display model must not be negative, was " + model);
+        }
+        return new PackageDisplay(name, List.copyOf(tooltip), model, idLine(packageType));
+    }
+
+    private static Component idLine(LootPackagesMod.PackageType packageType) {
+        return Component.literal(packageType.toString()).withStyle(ChatFormatting.DARK_GRAY);
+    }
+
+    private static Component parseComponent(JsonElement json) {
+        return ComponentSerialization.CODEC.parse(JsonOps.INSTANCE, json)
+                .getOrThrow(message -> new JsonParseException("Invalid text component: " + message));
+    }
+}
@@ -0,0 +1,83 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.network.protocol.common.custom.CustomPacketPayload;
+import net.minecraft.resources.ResourceLocation;
+import net.neoforged.neoforge.network.handling.IPayloadContext;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Display data of the loaded package types. The server publishes it on every definition load and sends it to
+ * clients on join and after each reload; a client only ever sees what the server sent, since clients do not
+ * load datapacks. The map is swapped as a whole, like the compiled tables.
+ */
+public final class PackageDisplays {
+
+    private static volatile Map<LootPackagesMod.PackageType, PackageDisplay> displays = Map.of();
+    private static volatile List<LootPackagesMod.PackageType> types = List.of();
+    // Placeholders for types without display data, kept until the next publish so rendering does not rebuild them
+    private static final Map<LootPackagesMod.PackageType, PackageDisplay> UNKNOWN = new ConcurrentHashMap<>();
+
+    private PackageDisplays() {
+    }
+
+    /**
+     * Swaps in the display data of a load, in the order the types should be listed.
+     */
+    static void publish(Map<LootPackagesMod.PackageType, PackageDisplay> loaded) {
+        Map<LootPackagesMod.PackageType, PackageDisplay> copy = new LinkedHashMap<>(loaded);
+        types = List.copyOf(copy.keySet());
+        displays = copy;
+        UNKNOWN.clear();
+    }
+
+    /**
+     * Gets the display data of a type. Never null; types without a loaded definition get a placeholder.
+     */
+    public static PackageDisplay get(LootPackagesMod.PackageType packageType) {
+        PackageDisplay display = displays.get(packageType);
+        return display != null ? display : UNKNOWN.computeIfAbsent(packageType, PackageDisplay::unknown);
+    }
+
+    /**
+     * The loaded types in listing order (sorted by id).
+     */
+    public static List<LootPackagesMod.PackageType> types() {
+        return types;
+    }
+
+    /**
+     * Sent to clients with the display data of every loaded type.
+     */
+    public record Payload(Map<LootPackagesMod.PackageType, PackageDisplay> displays) implements CustomPacketPayload {
+
+        public static final CustomPacketPayload.Type<Payload> TYPE =
+                new CustomPacketPayload.Type<>(ResourceLocation.fromNamespaceAndPath(LootPackagesMod.MODID, "package_displays"));
+
+        public static final StreamCodec<RegistryFriendlyByteBuf, Payload> STREAM_CODEC = ByteBufCodecs
+                .<RegistryFriendlyByteBuf, LootPackagesMod.PackageType, PackageDisplay, Map<LootPackagesMod.PackageType, PackageDisplay>>map(
+                        LinkedHashMap::new, LootPackagesMod.PackageType.STREAM_CODEC, PackageDisplay.STREAM_CODEC)
+                .map(Payload::new, Payload::displays);
+
+        public static Payload current() {
+            return new Payload(displays);
+        }
+
+        public static void handle(Payload payload, IPayloadContext context) {
+            // Payload handlers run on the main thread by default
+            publish(payload.displays());
+            StarterPackModClient.refreshCreativeTab();
+        }
+
+        @Override
+        public Type<? extends CustomPacketPayload> type() {
+            return TYPE;
+        }
+    }
+}
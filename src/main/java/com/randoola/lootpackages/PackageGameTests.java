@@ -0,0 +1,231 @@
+package com.randoola.lootpackages;
+
+import com.mojang.authlib.GameProfile;
+import it.unimi.dsi.fastutil.objects.Reference2LongMap;
+import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
+import net.minecraft.core.component.DataComponents;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestGenerator;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.gametest.framework.TestFunction;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.entity.EntityType;
+import net.minecraft.world.entity.item.ItemEntity;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.item.Items;
+import net.minecraft.world.item.component.ItemContainerContents;
+import net.minecraft.world.level.GameType;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.neoforge.common.util.FakePlayerFactory;
+import net.neoforged.neoforge.gametest.GameTestHolder;
+import net.neoforged.neoforge.gametest.PrefixGameTestTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load tests for package opening on a live server. Run headless with `./gradlew runGameTestServer`, or in game
+ * with /test runall.
+ *
+ * The open tests open thousands of sealed packages of each type into an empty and into a full inventory, and
+ * check that every rolled item ends up somewhere (inventory, item entities, overflow packages or the mailbox),
+ * that the number of item entities stays bounded, and that one tick's worth of opens fits in a tick. The queue
+ * test pushes thousands of real rolls through the open queue and checks the server tick times while it drains.
+ */
+@GameTestHolder(LootPackagesMod.MODID)
+@PrefixGameTestTemplate(false)
+public class PackageGameTests {
+
+    private static final String TEMPLATE = LootPackagesMod.MODID + ":platform";
+    private static final String OPEN_BATCH = "lootpackages_open";
+    // Separate batch, so tick times are not inflated by the open tests running in the same ticks
+    private static final String QUEUE_BATCH = "lootpackages_queue";
+
+    private static final int OPENS_PER_TEST = 2000;
+    private static final int QUEUED_OPENS_PER_TYPE = 1000;
+    private static final long MAX_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final Vec3 PLAYER_POS = new Vec3(3.5, 1.0, 3.5);
+    // FakePlayerFactory keeps a player per profile for the server's lifetime, so every open test shares this one.
+    // Each test runs to completion inside its test function, so they never use the player at the same time.
+    private static final GameProfile LOAD_TEST_PROFILE = new GameProfile(
+            UUID.fromString("5a3c1e0d-8f2b-4c6a-9d7e-1b4f2a6c8e90"), "[LootPackages load test]");
+
+    // One unstackable item per slot, so nothing rolled can merge into the inventory
+    private static final Item FILLER = Items.DEBUG_STICK;
+
+    @GameTestGenerator
+    public static List<TestFunction> openTests() {
+        List<TestFunction> tests = new ArrayList<>();
+        for (LootPackagesMod.PackageType packageType : LootPackagesMod.PackageType.BUILT_IN) {
+            String name = packageType.getId().getPath();
+            tests.add(new TestFunction(OPEN_BATCH, "packagegametests.open_" + name, TEMPLATE, 100, 0L, true,
+                    helper -> openPackages(helper, packageType, false)));
+            tests.add(new TestFunction(OPEN_BATCH, "packagegametests.open_" + name + "_full_inventory", TEMPLATE, 100, 0L, true,
+                    helper -> openPackages(helper, packageType, true)));
+        }
+        return tests;
+    }
+
+    /**
+     * Opens OPENS_PER_TEST sealed packages in tick-sized calls and accounts for every item.
+     */
+    private static void openPackages(GameTestHelper helper, LootPackagesMod.PackageType packageType, boolean fullInventory) {
+        ServerPlayer player = FakePlayerFactory.get(helper.getLevel(), LOAD_TEST_PROFILE);
+        player.moveTo(helper.absoluteVec(PLAYER_POS));
+        player.getInventory().clearContent();
+        if (fullInventory) {
+            for (int slot = 0; slot < player.getInventory().items.size(); slot++) {
+                player.getInventory().items.set(slot, new ItemStack(FILLER));
+            }
+        }
+
+        // Sealed contents make the expected totals known up front; the roll cost is covered by the queue test
+        SealedContents sealed = SealedContents.roll(packageType, helper.getLevel().getRandom().nextLong(),
+                player.serverLevel(), player.position(), player);
+        Reference2LongOpenHashMap<Item> expected = new Reference2LongOpenHashMap<>();
+        LootBuffer contents = new LootBuffer();
+        sealed.appendTo(contents);
+        for (int i = 0; i < contents.size(); i++) {
+            expected.addTo(BuiltInRegistries.ITEM.byId(contents.itemId(i)), (long) contents.count(i) * OPENS_PER_TEST);
+        }
+        for (ItemStack stack : contents.stacks()) {
+            expected.addTo(stack.getItem(), (long) stack.getCount() * OPENS_PER_TEST);
+        }
+
+        int perCall = LootPackagesConfig.getMaxOpensPerTick();
+        long entitiesBefore = PackageMetrics.getOverflowEntities();
+        long worstCall = 0;
+        long totalTime = 0;
+        int maxEntities = 0;
+        for (int opened = 0; opened < OPENS_PER_TEST; opened += perCall) {
+            long start = System.nanoTime();
+            int stacks = LootPackagesMod.openPackages(player, packageType, Math.min(perCall, OPENS_PER_TEST - opened), sealed);
+            long elapsed = System.nanoTime() - start;
+            worstCall = Math.max(worstCall, elapsed);
+            totalTime += elapsed;
+            maxEntities += maxSpawnedEntities(stacks);
+        }
+
+        List<ItemEntity> items = helper.getEntities(EntityType.ITEM);
+        Reference2LongOpenHashMap<Item> actual = new Reference2LongOpenHashMap<>();
+        for (ItemEntity item : items) {
+            countStack(item.getItem(), actual);
+        }
+        for (ItemStack stack : player.getInventory().items) {
+            if (!stack.is(FILLER)) {
+                countStack(stack, actual);
+            }
+        }
+        for (ItemStack stack : player.getInventory().offhand) {
+            countStack(stack, actual);
+        }
+        for (ItemStack stack : OverflowMailbox.get(helper.getLevel().getServer()).takeAll(player.getUUID())) {
+            countStack(stack, actual);
+        }
+        items.forEach(ItemEntity::discard);
+        player.getInventory().clearContent();
+
+        LootPackagesMod.LOGGER.info("Load test: {}x {} ({}) took {} us in total, worst call {} us, {} item entities",
+                OPENS_PER_TEST, packageType, fullInventory ? "full inventory" : "empty inventory",
+                TimeUnit.NANOSECONDS.toMicros(totalTime), TimeUnit.NANOSECONDS.toMicros(worstCall), items.size());
+
+        helper.assertTrue(worstCall < MAX_TICK_NANOS, "Opening " + perCall + " packages took "
+                + TimeUnit.NANOSECONDS.toMillis(worstCall) + " ms, more than a tick");
+        helper.assertTrue(items.size() == PackageMetrics.getOverflowEntities() - entitiesBefore,
+                "Found " + items.size() + " item entities, but " + (PackageMetrics.getOverflowEntities() - entitiesBefore) + " were reported");
+        helper.assertTrue(items.size() <= maxEntities,
+                "Spawned " + items.size() + " item entities, expected at most " + maxEntities);
+        for (Reference2LongMap.Entry<Item> entry : expected.reference2LongEntrySet()) {
+            long found = actual.removeLong(entry.getKey());
+            helper.assertTrue(found == entry.getLongValue(), "Expected " + entry.getLongValue() + " "
+                    + BuiltInRegistries.ITEM.getKey(entry.getKey()) + " but found " + found);
+        }
+        helper.assertTrue(actual.isEmpty(), "Found items that were never rolled: " + actual.keySet());
+        helper.succeed();
+    }
+
+    /**
+     * Queues real (unsealed) opens of every type for a player on the player list and lets the server work them
+     * off, checking the per-tick open budget and the server tick times while it does.
+     */
+    @GameTest(template = "platform", batch = QUEUE_BATCH, timeoutTicks = 2400)
+    public static void queuedOpens(GameTestHelper helper) {
+        MinecraftServer server = helper.getLevel().getServer();
+        ServerPlayer player = helper.makeMockServerPlayerInLevel();
+        // Survival, so a full inventory overflows instead of silently deleting what does not fit
+        player.setGameMode(GameType.SURVIVAL);
+        player.moveTo(helper.absoluteVec(PLAYER_POS));
+        player.getInventory().clearContent();
+
+        for (LootPackagesMod.PackageType packageType : LootPackagesMod.PackageType.BUILT_IN) {
+            PackageOpenQueue.enqueue(player, packageType, PackageDisplays.get(packageType).name(), null, QUEUED_OPENS_PER_TYPE);
+        }
+
+        int maxOpensPerTick = LootPackagesConfig.getMaxOpensPerTick();
+        long[] opensBefore = {PackageMetrics.getTotalOpens()};
+        long[] worstTick = {0L};
+        int[] ticks = {0};
+        helper.onEachTick(() -> {
+            long opens = PackageMetrics.getTotalOpens();
+            if (opens - opensBefore[0] > maxOpensPerTick) {
+                helper.fail("Opened " + (opens - opensBefore[0]) + " packages in one tick, budget is " + maxOpensPerTick);
+            }
+            opensBefore[0] = opens;
+
+            // This runs inside the tick after tickCount was incremented, so the previous tick is complete
+            long[] tickTimes = server.getTickTimesNanos();
+            worstTick[0] = Math.max(worstTick[0], tickTimes[Math.floorMod(server.getTickCount() - 1, tickTimes.length)]);
+            ticks[0]++;
+        });
+
+        helper.startSequence()
+                .thenWaitUntil(() -> helper.assertTrue(PackageOpenQueue.size() == 0,
+                        PackageOpenQueue.size() + " package opens still queued"))
+                .thenExecute(() -> {
+                    try {
+                        LootPackagesMod.LOGGER.info("Load test: drained {} queued opens in {} ticks, worst tick {} ms",
+                                QUEUED_OPENS_PER_TYPE * LootPackagesMod.PackageType.BUILT_IN.size(), ticks[0],
+                                TimeUnit.NANOSECONDS.toMillis(worstTick[0]));
+                        helper.assertTrue(worstTick[0] < MAX_TICK_NANOS, "Worst tick while draining took "
+                                + TimeUnit.NANOSECONDS.toMillis(worstTick[0]) + " ms");
+                    } finally {
+                        helper.killAllEntitiesOfClass(ItemEntity.class);
+                        OverflowMailbox.get(server).takeAll(player.getUUID());
+                        server.getPlayerList().remove(player);
+                    }
+                })
+                .thenSucceed();
+    }
+
+    /**
+     * Upper bound on the item entities one openPackages call may spawn for the given number of stacks.
+     */
+    private static int maxSpawnedEntities(int stacks) {
+        int packages = (stacks + OverflowPackageItem.CAPACITY - 1) / OverflowPackageItem.CAPACITY;
+        if (LootPackagesConfig.getOverflowMode() == LootDelivery.OverflowMode.DROP) {
+            return LootPackagesConfig.getMaxDroppedStacks() + packages;
+        }
+        return packages;
+    }
+
+    /**
+     * Adds a stack to the totals, looking inside overflow packages.
+     */
+    private static void countStack(ItemStack stack, Reference2LongOpenHashMap<Item> totals) {
+        if (stack.isEmpty()) {
+            return;
+        }
+        if (stack.is(LootPackagesMod.OVERFLOW_PACKAGE.get())) {
+            for (ItemStack inner : stack.getOrDefault(DataComponents.CONTAINER, ItemContainerContents.EMPTY).nonEmptyItems()) {
+                countStack(inner, totals);
+            }
+            return;
+        }
+        totals.addTo(stack.getItem(), stack.getCount());
+    }
+}
@@ -0,0 +1,199 @@
+package com.randoola.lootpackages;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.MapCodec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import net.minecraft.Util;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParams;
+import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
+import net.neoforged.neoforge.common.loot.IGlobalLootModifier;
+import net.neoforged.neoforge.common.loot.LootModifier;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Global loot modifier lootpackages:inject_packages. Adds packages to the loot of the listed tables, so vanilla
+ * tables no longer have to be copied and overridden, and other mods' and datapacks' changes to them still apply.
+ *
+ * The injections are compiled once per load into a map from table id to its injections; a table without
+ * injections costs one map lookup. Global loot modifiers only see the table that was queried, not nested tables,
+ * so injections name top-level tables (minecraft:gameplay/fishing rather than its treasure sub-table).
+ */
+public class PackageInjectionModifier extends LootModifier {
+
+    public static final MapCodec<PackageInjectionModifier> CODEC = RecordCodecBuilder.mapCodec(
+            instance -> codecStart(instance)
+                    .and(Injection.CODEC.listOf().fieldOf("injections").forGetter(modifier -> modifier.injections))
+                    .apply(instance, PackageInjectionModifier::new));
+
+    // The tables of the most recently loaded modifier, for cheap "is this table injected" checks
+    private static volatile Map<ResourceLocation, Injection[]> current = Map.of();
+
+    private final List<Injection> injections;
+    private final Map<ResourceLocation, Injection[]> byTable;
+
+    public PackageInjectionModifier(LootItemCondition[] conditions, List<Injection> injections) {
+        super(conditions);
+        this.injections = List.copyOf(injections);
+
+        Map<ResourceLocation, List<Injection>> grouped = new HashMap<>();
+        for (Injection injection : injections) {
+            grouped.computeIfAbsent(injection.table(), table -> new ArrayList<>()).add(injection);
+        }
+        Map<ResourceLocation, Injection[]> compiled = new HashMap<>();
+        grouped.forEach((table, list) -> compiled.put(table, list.toArray(new Injection[0])));
+        this.byTable = Map.copyOf(compiled);
+        current = byTable;
+    }
+
+    /**
+     * Whether the loaded modifier injects packages into the table.
+     */
+    public static boolean hasInjection(ResourceLocation table) {
+        return current.containsKey(table);
+    }
+
+    @Override
+    protected ObjectArrayList<ItemStack> doApply(ObjectArrayList<ItemStack> generatedLoot, LootContext context) {
+        Injection[] tableInjections = byTable.get(context.getQueriedLootTableId());
+        if (tableInjections == null) {
+            return generatedLoot;
+        }
+
+        for (Injection injection : tableInjections) {
+            RandomSource random = context.getRandom();
+            if (random.nextFloat() >= injection.chance() || !injection.test(context)) {
+                continue;
+            }
+            if (injection.replace()) {
+                generatedLoot.clear();
+            }
+            generatedLoot.add(createPackage(injection.pick(random), context));
+        }
+        return generatedLoot;
+    }
+
+    private static ItemStack createPackage(LootPackagesMod.PackageType packageType, LootContext context) {
+        // Packages from a chest or a mob are themed for where they were generated
+        return SealedContents.sealIfEnabled(PackageItem.create(packageType), context.getRandom().nextLong(),
+                context.getLevel(), context.getParamOrNull(LootContextParams.ORIGIN),
+                context.getParamOrNull(LootContextParams.THIS_ENTITY));
+    }
+
+    @Override
+    public MapCodec<? extends IGlobalLootModifier> codec() {
+        return LootPackagesMod.PACKAGE_INJECTION_MODIFIER.get();
+    }
+
+    /**
+     * A package type and its weight among the packages of one injection.
+     */
+    public record WeightedPackage(LootPackagesMod.PackageType packageType, int weight) {
+
+        public static final Codec<WeightedPackage> CODEC = RecordCodecBuilder.create(instance -> instance.group(
+                LootPackagesMod.PackageType.CODEC.fieldOf("package").forGetter(WeightedPackage::packageType),
+                Codec.intRange(1, Integer.MAX_VALUE).optionalFieldOf("weight", 1).forGetter(WeightedPackage::weight)
+        ).apply(instance, WeightedPackage::new));
+    }
+
+    /**
+     * One package roll for a table: with the given chance, and only if the conditions pass, adds one package
+     * picked by weight. With replace set, the package replaces everything the table generated.
+     */
+    public static final class Injection {
+
+        public static final Codec<Injection> CODEC = RecordCodecBuilder.create(instance -> instance.group(
+                ResourceLocation.CODEC.fieldOf("table").forGetter(Injection::table),
+                LootItemCondition.DIRECT_CODEC.listOf().optionalFieldOf("conditions", List.of()).forGetter(Injection::conditions),
+                Codec.floatRange(0.0f, 1.0f).fieldOf("chance").forGetter(Injection::chance),
+                Codec.BOOL.optionalFieldOf("replace", false).forGetter(Injection::replace),
+                WeightedPackage.CODEC.listOf().fieldOf("packages").forGetter(Injection::packages)
+        ).apply(instance, Injection::new));
+
+        private final ResourceLocation table;
+        private final List<LootItemCondition> conditions;
+        private final float chance;
+        private final boolean replace;
+        private final List<WeightedPackage> packages;
+
+        // Compiled: the conditions as one predicate, and cumulative weights for the pick
+        private final Predicate<LootContext> test;
+        private final LootPackagesMod.PackageType[] types;
+        private final int[] cumulativeWeights;
+
+        public Injection(ResourceLocation table, List<LootItemCondition> conditions, float chance, boolean replace,
+                         List<WeightedPackage> packages) {
+            if (packages.isEmpty()) {
+                throw new IllegalArgumentException("Package injection for " + table + " lists no packages");
+            }
+            this.table = table;
+            this.conditions = List.copyOf(conditions);
+            this.chance = chance;
+            this.replace = replace;
+            this.packages = List.copyOf(packages);
+
+            this.test = Util.allOf(this.conditions);
+            this.types = new LootPackagesMod.PackageType[packages.size()];
+            this.cumulativeWeights = new int[packages.size()];
+            int total = 0;
+            for (int i = 0; i < packages.size(); i++) {
+                total += packages.get(i).weight();
+                types[i] = packages.get(i).packageType();
+                cumulativeWeights[i] = total;
+            }
+        }
+
+        /**
+         * An injection of a single package type.
+         */
+        public static Injection of(ResourceLocation table, float chance, LootPackagesMod.PackageType packageType) {
+            return new Injection(table, List.of(), chance, false, List.of(new WeightedPackage(packageType, 1)));
+        }
+
+        boolean test(LootContext context) {
+            return test.test(context);
+        }
+
+        LootPackagesMod.PackageType pick(RandomSource random) {
+            if (types.length == 1) {
+                return types[0];
+            }
+            int roll = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (roll < cumulativeWeights[i]) {
+                    return types[i];
+                }
+            }
+            return types[types.length - 1];
+        }
+
+        public ResourceLocation table() {
+            return table;
+        }
+
+        public List<LootItemCondition> conditions() {
+            return conditions;
+        }
+
+        public float chance() {
+            return chance;
+        }
+
+        public boolean replace() {
+            return replace;
+        }
+
+        public List<WeightedPackage> packages() {
+            return packages;
+        }
+    }
+}
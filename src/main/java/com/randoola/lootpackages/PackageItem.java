@@ -1,5 +1,6 @@
 package com.randoola.lootpackages;
 
+import net.minecraft.ChatFormatting;
 import net.minecraft.network.chat.Component;
 import net.minecraft.server.level.ServerPlayer;
 import net.minecraft.world.InteractionHand;
@@ -12,13 +13,42 @@ import net.minecraft.world.level.Level;
 
 import java.util.List;
 
+/**
+ * The package item. Every package type shares it; the type is the lootpackages:package_type component, and the
+ * name, description and model come from the type's display data.
+ */
 public class PackageItem extends Item {
 
-    private final LootPackagesMod.PackageType packageType;
+    private static final Component OPEN_HINT = Component.translatable("tooltip.lootpackages.package.open")
+            .withStyle(ChatFormatting.YELLOW);
+    private static final Component OPEN_STACK_HINT = Component.translatable("tooltip.lootpackages.package.open_stack")
+            .withStyle(ChatFormatting.YELLOW);
 
-    public PackageItem(LootPackagesMod.PackageType packageType) {
+    private static final Component SEALED_HINT = Component.translatable("tooltip.lootpackages.package.sealed")
+            .withStyle(ChatFormatting.AQUA);
+
+    public PackageItem() {
         super(new Item.Properties().stacksTo(16));
-        this.packageType = packageType;
+    }
+
+    /**
+     * Creates a package stack of the given type.
+     */
+    public static ItemStack create(LootPackagesMod.PackageType packageType) {
+        return create(packageType, 1);
+    }
+
+    public static ItemStack create(LootPackagesMod.PackageType packageType, int count) {
+        ItemStack stack = new ItemStack(LootPackagesMod.PACKAGE.get(), count);
+        stack.set(LootPackagesMod.PACKAGE_TYPE.get(), packageType);
+        return stack;
+    }
+
+    /**
+     * Gets the type of a package stack, or null if the stack is not a package or has no type.
+     */
+    public static LootPackagesMod.PackageType getPackageType(ItemStack stack) {
+        return stack.is(LootPackagesMod.PACKAGE.get()) ? stack.get(LootPackagesMod.PACKAGE_TYPE.get()) : null;
     }
 
     @Override
@@ -26,15 +56,33 @@ public class PackageItem extends Item {
         ItemStack itemStack = player.getItemInHand(hand);
 
         if (!level.isClientSide && player instanceof ServerPlayer serverPlayer) {
-            // Generate loot based on package type
-            LootPackagesMod.generatePackageLoot(serverPlayer, packageType);
+            LootPackagesMod.PackageType packageType = getPackageType(itemStack);
+            if (packageType == null || !PackageLootTables.isDefined(packageType)) {
+                // Kept rather than consumed, so the package works again once its datapack is back
+                serverPlayer.displayClientMessage(Component.translatable("message.lootpackages.unknown_package")
+                        .withStyle(ChatFormatting.RED), true);
+                return InteractionResultHolder.fail(itemStack);
+            }
+
+            // Sneak-use opens the whole stack in one operation
+            int count = player.isShiftKeyDown() ? itemStack.getCount() : 1;
+
+            // Queue the opens; they run at the end of the tick within the server's opening budget
+            SealedContents sealed = itemStack.get(LootPackagesMod.SEALED_CONTENTS.get());
+            int ahead = PackageOpenQueue.enqueue(serverPlayer, packageType, PackageDisplays.get(packageType).name(),
+                    sealed, count);
+            if (ahead > 0) {
+                serverPlayer.displayClientMessage(Component.translatable("message.lootpackages.queued", count, ahead)
+                        .withStyle(ChatFormatting.GRAY), true);
+            }
 
-            // Send message to player about what package they opened
-            String message = "Â§6Opened " + packageType.getDisplayName() + "!";
-            serverPlayer.sendSystemMessage(Component.literal(message), false);
+            int cooldown = LootPackagesConfig.getOpenCooldownTicks();
+            if (cooldown > 0) {
+                player.getCooldowns().addCooldown(this, cooldown);
+            }
 
-            // Consume the package
-            itemStack.shrink(1);
+            // Consume the package(s)
+            itemStack.shrink(count);
 
             return InteractionResultHolder.success(itemStack);
         }
@@ -42,53 +90,32 @@ public class PackageItem extends Item {
         return InteractionResultHolder.pass(itemStack);
     }
 
-    public void appendHoverText(ItemStack stack, Level level, List<Component> tooltip, TooltipFlag flag) {
-        switch (packageType) {
-            case STARTER_SURVIVAL -> {
-                tooltip.add(Component.literal("Â§7Basic tools, food, and supplies"));
-                tooltip.add(Component.literal("Â§7Perfect for new adventurers"));
-            }
-            case DUNGEON_LOOT -> {
-                tooltip.add(Component.literal("Â§7Enchanted gear and rare materials"));
-                tooltip.add(Component.literal("Â§7Found in dark underground places"));
-            }
-            case TREASURE -> {
-                tooltip.add(Component.literal("Â§6Valuable gems and precious items"));
-                tooltip.add(Component.literal("Â§6Buried treasure and riches"));
-            }
-            case NETHER_LOOT -> {
-                tooltip.add(Component.literal("Â§cFiery materials from the Nether"));
-                tooltip.add(Component.literal("Â§cGold, magma, and flame-touched gear"));
-            }
-            case END_LOOT -> {
-                tooltip.add(Component.literal("Â§5Mysterious items from the End"));
-                tooltip.add(Component.literal("Â§5Ender pearls and otherworldly gear"));
-            }
-            case MOB_DROP -> {
-                tooltip.add(Component.literal("Â§8Materials dropped by creatures"));
-                tooltip.add(Component.literal("Â§8Bones, strings, and mob essences"));
-            }
-            case BIOME_SPECIFIC -> {
-                tooltip.add(Component.literal("Â§2Resources from various biomes"));
-                tooltip.add(Component.literal("Â§2Forest, desert, ocean, and more"));
-            }
-            case MYSTERY -> {
-                tooltip.add(Component.literal("Â§d???"));
-                tooltip.add(Component.literal("Â§dAnything could be inside!"));
-            }
-            case DEEP_DARK -> {
-                tooltip.add(Component.literal("Â§0Ancient materials from the depths"));
-                tooltip.add(Component.literal("Â§0Sculk blocks, echo shards, and silence"));
-                tooltip.add(Component.literal("Â§8Contains exclusive Ancient City loot"));
-            }
+    @Override
+    public void appendHoverText(ItemStack stack, Item.TooltipContext context, List<Component> tooltip, TooltipFlag flag) {
+        LootPackagesMod.PackageType packageType = stack.get(LootPackagesMod.PACKAGE_TYPE.get());
+        if (packageType != null) {
+            // Display components are built once per load; getName and the tooltip run every rendered frame
+            tooltip.addAll(PackageDisplays.get(packageType).tooltip());
+            tooltip.add(Component.empty());
+            tooltip.add(OPEN_HINT);
+            tooltip.add(OPEN_STACK_HINT);
         }
 
-        tooltip.add(Component.literal(""));
-        tooltip.add(Component.literal("Â§eRight-click to open"));
+        SealedContents sealed = stack.get(LootPackagesMod.SEALED_CONTENTS.get());
+        if (sealed != null) {
+            tooltip.add(SEALED_HINT);
+            if (flag.isAdvanced()) {
+                tooltip.add(sealed.getSealLine());
+            }
+        }
+        if (packageType != null && flag.isAdvanced()) {
+            tooltip.add(PackageDisplays.get(packageType).id());
+        }
     }
 
     @Override
     public Component getName(ItemStack stack) {
-        return Component.literal(packageType.getDisplayName());
+        LootPackagesMod.PackageType packageType = stack.get(LootPackagesMod.PACKAGE_TYPE.get());
+        return packageType != null ? PackageDisplays.get(packageType).name() : super.getName(stack);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.advancements.critereon.EntityPredicate;
+import net.minecraft.advancements.critereon.FishingHookPredicate;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.data.PackOutput;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
+import net.minecraft.world.level.storage.loot.predicates.LootItemEntityPropertyCondition;
+import net.neoforged.neoforge.common.data.GlobalLootModifierProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Generates the lootpackages:inject_packages modifier, the single place that says which vanilla tables get
+ * which packages. Run with `./gradlew runData`; the output goes to src/generated/resources.
+ */
+public class PackageLootModifierProvider extends GlobalLootModifierProvider {
+
+    public PackageLootModifierProvider(PackOutput output, CompletableFuture<HolderLookup.Provider> registries) {
+        super(output, registries, LootPackagesMod.MODID);
+    }
+
+    @Override
+    protected void start() {
+        add("inject_packages", new PackageInjectionModifier(new LootItemCondition[0], injections()));
+    }
+
+    static List<PackageInjectionModifier.Injection> injections() {
+        List<PackageInjectionModifier.Injection> injections = new ArrayList<>();
+
+        chest(injections, "abandoned_mineshaft", 0.03f, LootPackagesMod.PackageType.DUNGEON_LOOT);
+        chest(injections, "simple_dungeon", 0.03f, LootPackagesMod.PackageType.DUNGEON_LOOT);
+        chest(injections, "simple_dungeon", 0.03f, LootPackagesMod.PackageType.MOB_DROP);
+        chest(injections, "stronghold_corridor", 0.03f, LootPackagesMod.PackageType.DUNGEON_LOOT);
+        chest(injections, "stronghold_crossing", 0.03f, LootPackagesMod.PackageType.DUNGEON_LOOT);
+        chest(injections, "stronghold_library", 0.03f, LootPackagesMod.PackageType.DUNGEON_LOOT);
+        chest(injections, "pillager_outpost", 0.03f, LootPackagesMod.PackageType.MOB_DROP);
+        chest(injections, "woodland_mansion", 0.03f, LootPackagesMod.PackageType.MOB_DROP);
+
+        chest(injections, "buried_treasure", 0.03f, LootPackagesMod.PackageType.TREASURE);
+        chest(injections, "shipwreck_treasure", 0.03f, LootPackagesMod.PackageType.TREASURE);
+        chest(injections, "underwater_ruin_big", 0.03f, LootPackagesMod.PackageType.TREASURE);
+        chest(injections, "underwater_ruin_small", 0.03f, LootPackagesMod.PackageType.TREASURE);
+
+        chest(injections, "nether_bridge", 0.02f, LootPackagesMod.PackageType.NETHER_LOOT);
+        chest(injections, "bastion_bridge", 0.02f, LootPackagesMod.PackageType.NETHER_LOOT);
+        chest(injections, "bastion_hoglin_stable", 0.02f, LootPackagesMod.PackageType.NETHER_LOOT);
+        chest(injections, "bastion_other", 0.02f, LootPackagesMod.PackageType.NETHER_LOOT);
+        chest(injections, "bastion_treasure", 0.02f, LootPackagesMod.PackageType.NETHER_LOOT);
+
+        chest(injections, "end_city_treasure", 0.02f, LootPackagesMod.PackageType.END_LOOT);
+        chest(injections, "ancient_city", 0.02f, LootPackagesMod.PackageType.END_LOOT);
+        chest(injections, "ancient_city", 0.01f, LootPackagesMod.PackageType.DEEP_DARK);
+
+        for (String house : List.of("plains_house", "desert_house", "savanna_house", "snowy_house", "taiga_house",
+                "butcher", "shepherd", "tannery")) {
+            chest(injections, "village/village_" + house, 0.05f, LootPackagesMod.PackageType.STARTER_SURVIVAL);
+        }
+        for (String house : List.of("snowy_house", "taiga_house", "mason")) {
+            chest(injections, "village/village_" + house, 0.03f, LootPackagesMod.PackageType.BIOME_SPECIFIC);
+        }
+        chest(injections, "village/village_armorer", 0.03f, LootPackagesMod.PackageType.DUNGEON_LOOT);
+        chest(injections, "village/village_toolsmith", 0.03f, LootPackagesMod.PackageType.DUNGEON_LOOT);
+        chest(injections, "village/village_weaponsmith", 0.03f, LootPackagesMod.PackageType.DUNGEON_LOOT);
+        chest(injections, "village/village_fisher", 0.03f, LootPackagesMod.PackageType.TREASURE);
+        chest(injections, "village/village_fletcher", 0.03f, LootPackagesMod.PackageType.MOB_DROP);
+        chest(injections, "village/village_cartographer", 0.02f, LootPackagesMod.PackageType.MYSTERY);
+        chest(injections, "village/village_temple", 0.02f, LootPackagesMod.PackageType.MYSTERY);
+
+        injections.add(PackageInjectionModifier.Injection.of(vanilla("entities/warden"), 0.005f, LootPackagesMod.PackageType.DEEP_DARK));
+
+        // Packages used to be 25 of 79 weight in the fishing treasure pool, and treasure is 5 of 100 of
+        // open-water catches at luck 0. The sub-table is not visible to loot modifiers, so the package
+        // replaces the whole catch at the product of the two chances
+        injections.add(new PackageInjectionModifier.Injection(vanilla("gameplay/fishing"),
+                List.of(LootItemEntityPropertyCondition.hasProperties(LootContext.EntityTarget.THIS,
+                        EntityPredicate.Builder.entity().subPredicate(FishingHookPredicate.inOpenWater(true))).build()),
+                0.05f * 25 / 79, true, List.of(
+                        weighted(LootPackagesMod.PackageType.STARTER_SURVIVAL, 6),
+                        weighted(LootPackagesMod.PackageType.MOB_DROP, 4),
+                        weighted(LootPackagesMod.PackageType.BIOME_SPECIFIC, 4),
+                        weighted(LootPackagesMod.PackageType.MYSTERY, 3),
+                        weighted(LootPackagesMod.PackageType.DUNGEON_LOOT, 2),
+                        weighted(LootPackagesMod.PackageType.NETHER_LOOT, 2),
+                        weighted(LootPackagesMod.PackageType.TREASURE, 2),
+                        weighted(LootPackagesMod.PackageType.END_LOOT, 1),
+                        weighted(LootPackagesMod.PackageType.DEEP_DARK, 1))));
+
+        return injections;
+    }
+
+    private static void chest(List<PackageInjectionModifier.Injection> injections, String chest, float chance,
+                              LootPackagesMod.PackageType packageType) {
+        injections.add(PackageInjectionModifier.Injection.of(vanilla("chests/" + chest), chance, packageType));
+    }
+
+    private static PackageInjectionModifier.WeightedPackage weighted(LootPackagesMod.PackageType packageType, int weight) {
+        return new PackageInjectionModifier.WeightedPackage(packageType, weight);
+    }
+
+    private static ResourceLocation vanilla(String path) {
+        return ResourceLocation.withDefaultNamespace(path);
+    }
+}
@@ -0,0 +1,416 @@
+package com.randoola.lootpackages;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import net.minecraft.core.Holder;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.tags.TagKey;
+import net.minecraft.util.GsonHelper;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.level.biome.Biome;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A package definition compiled into flat primitive tables.
+ *
+ * A definition is a list of themes (a plain "entries" list is a single implicit theme). Each open picks one
+ * theme by weight and then walks its entries: every entry is rolled "rolls" times, passes with "chance",
+ * and picks one item from its weighted pool with a count in [min, max].
+ *
+ * Themes may list "biomes" (biome ids or #tags). When the opener's biome is known, the first theme matching
+ * it is used instead of a weighted pick; biomes no theme covers fall back to the weighted pick.
+ */
+public final class PackageLootTable {
+
+    private static final int NO_THEME = -1;
+
+    public static final PackageLootTable EMPTY = new PackageLootTable(
+            new String[]{"default"}, new int[]{1}, new int[]{0, 0}, new ThemeBiomes[]{ThemeBiomes.NONE},
+            new float[0], new int[0], new int[0], new int[0], new float[0], new float[0],
+            new int[]{0}, new int[0], new int[0], new int[0]);
+
+    // Themes: cumulative weights and the entry range [themeFirstEntry[t], themeFirstEntry[t + 1])
+    private final String[] themeNames;
+    private final int[] themeCumulativeWeights;
+    private final int[] themeFirstEntry;
+    private final ThemeBiomes[] themeBiomes;
+    private final boolean biomeAware;
+
+    // Biome to theme index (or NO_THEME), filled on first lookup. A table is recompiled on every datapack
+    // reload, which throws the cache away with it. Concurrent, since tables are shared by every level and
+    // levels may tick on different threads.
+    private final Map<Biome, Integer> biomeThemeCache = new ConcurrentHashMap<>();
+
+    // Entries
+    private final float[] chances;
+    private final int[] rolls;
+    private final int[] minCounts;
+    private final int[] countSpans;
+    private final float[] minDamage;
+    private final float[] damageSpans;
+
+    // Pools: entry e draws from [poolStart[e], poolStart[e + 1])
+    private final int[] poolStart;
+    private final int[] poolItems;
+    private final int[] poolCumulativeWeights;
+    private final int[] poolMaxDamage;
+
+    private PackageLootTable(String[] themeNames, int[] themeCumulativeWeights, int[] themeFirstEntry,
+                             ThemeBiomes[] themeBiomes, float[] chances, int[] rolls, int[] minCounts, int[] countSpans,
+                             float[] minDamage, float[] damageSpans,
+                             int[] poolStart, int[] poolItems, int[] poolCumulativeWeights, int[] poolMaxDamage) {
+        this.themeNames = themeNames;
+        this.themeCumulativeWeights = themeCumulativeWeights;
+        this.themeFirstEntry = themeFirstEntry;
+        this.themeBiomes = themeBiomes;
+        boolean biomeAware = false;
+        for (ThemeBiomes biomes : themeBiomes) {
+            biomeAware |= !biomes.isEmpty();
+        }
+        this.biomeAware = biomeAware;
+        this.chances = chances;
+        this.rolls = rolls;
+        this.minCounts = minCounts;
+        this.countSpans = countSpans;
+        this.minDamage = minDamage;
+        this.damageSpans = damageSpans;
+        this.poolStart = poolStart;
+        this.poolItems = poolItems;
+        this.poolCumulativeWeights = poolCumulativeWeights;
+        this.poolMaxDamage = poolMaxDamage;
+    }
+
+    /**
+     * Biome ids and tags a theme covers.
+     */
+    record ThemeBiomes(List<ResourceKey<Biome>> keys, List<TagKey<Biome>> tags) {
+        static final ThemeBiomes NONE = new ThemeBiomes(List.of(), List.of());
+
+        boolean isEmpty() {
+            return keys.isEmpty() && tags.isEmpty();
+        }
+
+        boolean matches(Holder<Biome> biome) {
+            for (ResourceKey<Biome> key : keys) {
+                if (biome.is(key)) {
+                    return true;
+                }
+            }
+            for (TagKey<Biome> tag : tags) {
+                if (biome.is(tag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Rolls the table into the given buffer with a weighted theme pick.
+     *
+     * @return the index of the theme that was rolled
+     */
+    public int roll(RandomSource random, LootBuffer out) {
+        return roll(random, out, null);
+    }
+
+    /**
+     * Rolls the table into the given buffer, using the theme for the given biome if one covers it.
+     *
+     * @param biome the opener's biome, or null if unknown
+     * @return the index of the theme that was rolled
+     */
+    public int roll(RandomSource random, LootBuffer out, Holder<Biome> biome) {
+        int theme = biome != null && biomeAware ? themeFor(biome) : NO_THEME;
+        if (theme == NO_THEME) {
+            theme = pickTheme(random);
+        }
+        int end = themeFirstEntry[theme + 1];
+
+        for (int entry = themeFirstEntry[theme]; entry < end; entry++) {
+            float chance = chances[entry];
+            for (int roll = rolls[entry]; roll > 0; roll--) {
+                if (chance < 1.0f && random.nextFloat() >= chance) {
+                    continue;
+                }
+
+                int slot = pickSlot(entry, random);
+                int span = countSpans[entry];
+                int count = minCounts[entry] + (span > 1 ? random.nextInt(span) : 0);
+
+                int damage = LootBuffer.NO_DAMAGE;
+                if (minDamage[entry] >= 0.0f && poolMaxDamage[slot] > 0) {
+                    damage = (int) (poolMaxDamage[slot] * (minDamage[entry] + random.nextFloat() * damageSpans[entry]));
+                }
+
+                out.add(poolItems[slot], count, damage);
+            }
+        }
+
+        return theme;
+    }
+
+    public String getThemeName(int theme) {
+        return themeNames[theme];
+    }
+
+    public int getThemeCount() {
+        return themeNames.length;
+    }
+
+    public boolean isBiomeAware() {
+        return biomeAware;
+    }
+
+    /**
+     * The first theme covering the biome, or NO_THEME. Cached per biome instance.
+     */
+    private int themeFor(Holder<Biome> biome) {
+        Integer cached = biomeThemeCache.get(biome.value());
+        if (cached != null) {
+            return cached;
+        }
+        int theme = NO_THEME;
+        for (int t = 0; t < themeBiomes.length; t++) {
+            if (themeBiomes[t].matches(biome)) {
+                theme = t;
+                break;
+            }
+        }
+        biomeThemeCache.put(biome.value(), theme);
+        return theme;
+    }
+
+    /**
+     * Forgets the biome lookups, for when biome tags are rebound without the table being recompiled.
+     */
+    public void clearBiomeCache() {
+        biomeThemeCache.clear();
+    }
+
+    private int pickTheme(RandomSource random) {
+        int themes = themeCumulativeWeights.length;
+        if (themes == 1) {
+            return 0;
+        }
+        int target = random.nextInt(themeCumulativeWeights[themes - 1]);
+        int theme = 0;
+        while (themeCumulativeWeights[theme] <= target) {
+            theme++;
+        }
+        return theme;
+    }
+
+    private int pickSlot(int entry, RandomSource random) {
+        int start = poolStart[entry];
+        int end = poolStart[entry + 1];
+        if (end - start == 1) {
+            return start;
+        }
+        int target = random.nextInt(poolCumulativeWeights[end - 1]);
+        int slot = start;
+        while (poolCumulativeWeights[slot] <= target) {
+            slot++;
+        }
+        return slot;
+    }
+
+    /**
+     * Compiles a package definition. Throws JsonParseException on malformed data or unknown items.
+     */
+    public static PackageLootTable compile(JsonObject json) {
+        return compile(json, PackageTuning.NONE);
+    }
+
+    /**
+     * Compiles a package definition with the config tuning for its type applied to weights, chances and counts.
+     */
+    public static PackageLootTable compile(JsonObject json, PackageTuning tuning) {
+        List<String> themeNames = new ArrayList<>();
+        List<Integer> themeWeights = new ArrayList<>();
+        List<JsonArray> themeEntries = new ArrayList<>();
+        List<ThemeBiomes> themeBiomes = new ArrayList<>();
+
+        if (json.has("themes")) {
+            for (JsonElement element : GsonHelper.getAsJsonArray(json, "themes")) {
+                JsonObject theme = GsonHelper.convertToJsonObject(element, "theme");
+                themeNames.add(GsonHelper.getAsString(theme, "name", "theme_" + themeNames.size()));
+                themeWeights.add(positive(GsonHelper.getAsInt(theme, "weight", 1), "theme weight"));
+                themeEntries.add(GsonHelper.getAsJsonArray(theme, "entries"));
+                themeBiomes.add(parseBiomes(theme));
+            }
+            if (themeNames.isEmpty()) {
+                throw new JsonParseException("Package definition declares no themes");
+            }
+        } else {
+            themeNames.add("default");
+            themeWeights.add(1);
+            themeEntries.add(GsonHelper.getAsJsonArray(json, "entries"));
+            themeBiomes.add(ThemeBiomes.NONE);
+        }
+
+        int entryCount = 0;
+        for (JsonArray entries : themeEntries) {
+            entryCount += entries.size();
+        }
+
+        int[] themeCumulativeWeights = new int[themeNames.size()];
+        int[] themeFirstEntry = new int[themeNames.size() + 1];
+        float[] chances = new float[entryCount];
+        int[] rolls = new int[entryCount];
+        int[] minCounts = new int[entryCount];
+        int[] countSpans = new int[entryCount];
+        float[] minDamage = new float[entryCount];
+        float[] damageSpans = new float[entryCount];
+        int[] poolStart = new int[entryCount + 1];
+        IntArrayList poolItems = new IntArrayList();
+        IntArrayList poolCumulativeWeights = new IntArrayList();
+        IntArrayList poolMaxDamage = new IntArrayList();
+
+        int entry = 0;
+        int cumulativeThemeWeight = 0;
+        for (int theme = 0; theme < themeNames.size(); theme++) {
+            cumulativeThemeWeight += themeWeights.get(theme);
+            themeCumulativeWeights[theme] = cumulativeThemeWeight;
+            themeFirstEntry[theme] = entry;
+
+            for (JsonElement element : themeEntries.get(theme)) {
+                JsonObject entryJson = GsonHelper.convertToJsonObject(element, "entry");
+
+                rolls[entry] = positive(GsonHelper.getAsInt(entryJson, "rolls", 1), "rolls");
+
+                if (entryJson.has("damage")) {
+                    JsonObject damage = GsonHelper.getAsJsonObject(entryJson, "damage");
+                    float min = GsonHelper.getAsFloat(damage, "min");
+                    float max = GsonHelper.getAsFloat(damage, "max");
+                    if (min < 0.0f || max > 1.0f || max < min) {
+                        throw new JsonParseException("Damage range must be within [0, 1], got [" + min + ", " + max + "]");
+                    }
+                    minDamage[entry] = min;
+                    damageSpans[entry] = max - min;
+                } else {
+                    minDamage[entry] = -1.0f;
+                }
+
+                poolStart[entry] = poolItems.size();
+                IntArrayList listed = new IntArrayList();
+                int cumulativeWeight = 0;
+                for (JsonElement itemElement : GsonHelper.getAsJsonArray(entryJson, "items")) {
+                    String itemName;
+                    int weight = 1;
+                    if (itemElement.isJsonObject()) {
+                        JsonObject itemJson = itemElement.getAsJsonObject();
+                        itemName = GsonHelper.getAsString(itemJson, "item");
+                        weight = positive(GsonHelper.getAsInt(itemJson, "weight", 1), "item weight");
+                    } else {
+                        itemName = GsonHelper.convertToString(itemElement, "item");
+                    }
+
+                    Item item = BuiltInRegistries.ITEM.getOptional(ResourceLocation.parse(itemName))
+                            .orElseThrow(() -> new JsonParseException("Unknown item: " + itemName));
+                    int itemId = BuiltInRegistries.ITEM.getId(item);
+                    listed.add(itemId);
+
+                    weight = tuning.weight(itemId, weight);
+                    if (weight == 0) {
+                        continue;
+                    }
+                    cumulativeWeight += weight;
+                    poolItems.add(itemId);
+                    poolCumulativeWeights.add(cumulativeWeight);
+                    poolMaxDamage.add(item.getDefaultInstance().getMaxDamage());
+                }
+                if (listed.isEmpty()) {
+                    throw new JsonParseException("Entry " + entry + " has an empty item pool");
+                }
+
+                chances[entry] = tuning.chance(GsonHelper.getAsFloat(entryJson, "chance", 1.0f), listed);
+                int[] count = parseRange(entryJson, "count");
+                count = tuning.count(count[0], count[1], listed);
+                minCounts[entry] = count[0];
+                countSpans[entry] = count[1] - count[0] + 1;
+
+                if (poolItems.size() == poolStart[entry]) {
+                    // Tuning removed every item; keep the entry but never let it pass, so indices stay dense
+                    poolItems.add(listed.getInt(0));
+                    poolCumulativeWeights.add(1);
+                    poolMaxDamage.add(0);
+                    chances[entry] = 0.0f;
+                }
+                entry++;
+            }
+        }
+        themeFirstEntry[themeNames.size()] = entry;
+        poolStart[entryCount] = poolItems.size();
+
+        return new PackageLootTable(themeNames.toArray(new String[0]), themeCumulativeWeights, themeFirstEntry,
+                themeBiomes.toArray(new ThemeBiomes[0]), chances, rolls, minCounts, countSpans, minDamage, damageSpans,
+                poolStart, poolItems.toIntArray(), poolCumulativeWeights.toIntArray(), poolMaxDamage.toIntArray());
+    }
+
+    /**
+     * Parses a theme's optional "biomes" list of biome ids and #tags. Ids are not checked against the biome
+     * registry here, since datapack biomes are only known once the server's registries are loaded.
+     */
+    private static ThemeBiomes parseBiomes(JsonObject theme) {
+        if (!theme.has("biomes")) {
+            return ThemeBiomes.NONE;
+        }
+        List<ResourceKey<Biome>> keys = new ArrayList<>();
+        List<TagKey<Biome>> tags = new ArrayList<>();
+        for (JsonElement element : GsonHelper.getAsJsonArray(theme, "biomes")) {
+            String name = GsonHelper.convertToString(element, "biome");
+            boolean tag = name.startsWith("#");
+            ResourceLocation location = ResourceLocation.tryParse(tag ? name.substring(1) : name);
+            if (location == null) {
+                throw new JsonParseException("Invalid biome or biome tag: " + name);
+            }
+            if (tag) {
+                tags.add(TagKey.create(Registries.BIOME, location));
+            } else {
+                keys.add(ResourceKey.create(Registries.BIOME, location));
+            }
+        }
+        return new ThemeBiomes(List.copyOf(keys), List.copyOf(tags));
+    }
+
+    /**
+     * Parses either a fixed int or a {"min": a, "max": b} object. Missing means exactly one.
+     */
+    private static int[] parseRange(JsonObject json, String key) {
+        if (!json.has(key)) {
+            return new int[]{1, 1};
+        }
+        JsonElement element = json.get(key);
+        int min;
+        int max;
+        if (element.isJsonObject()) {
+            min = GsonHelper.getAsInt(element.getAsJsonObject(), "min");
+            max = GsonHelper.getAsInt(element.getAsJsonObject(), "max");
+        } else {
+            min = max = GsonHelper.convertToInt(element, key);
+        }
+        if (min < 1 || max < min) {
+            throw new JsonParseException("Invalid " + key + " range [" + min + ", " + max + "]");
+        }
+        return new int[]{min, max};
+    }
+
+    private static int positive(int value, String name) {
+        if (value < 1) {
+            throw new JsonParseException(name + " must be at least 1, got " + value);
+        }
+        return value;
+    }
+}
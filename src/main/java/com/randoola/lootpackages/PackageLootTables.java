@@ -0,0 +1,203 @@
+package com.randoola.lootpackages;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.ReloadableServerRegistries;
+import net.minecraft.server.packs.resources.ResourceManager;
+import net.minecraft.server.packs.resources.SimpleJsonResourceReloadListener;
+import net.minecraft.util.GsonHelper;
+import net.minecraft.util.profiling.ProfilerFiller;
+import net.minecraft.world.level.storage.loot.LootTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Loads package definitions from data/<namespace>/packages/<type>.json and compiles them once per reload.
+ * Every definition found is a package type; a definition with "mystery": true draws from the item registry
+ * instead of compiling a table. The compiled set is swapped in as a whole, so opening a package never sees a
+ * half-loaded set.
+ *
+ * A type can also have a vanilla loot table, lootpackages:packages/<type> (data/<namespace>/loot_table/packages/
+ * <type>.json), for contents that need loot functions or conditions: enchantments, potions, components, luck.
+ * Its output is added to every package of the type.
+ */
+public class PackageLootTables extends SimpleJsonResourceReloadListener {
+
+    private static final Gson GSON = new GsonBuilder().create();
+    private static final String DIRECTORY = "packages";
+
+    /**
+     * One load's result, indexed by PackageType.getIndex(). Types interned after the load are past the end of
+     * the arrays and count as undefined.
+     */
+    private record Loaded(PackageLootTable[] tables, boolean[] defined, boolean[] mystery,
+                          List<LootPackagesMod.PackageType> types) {
+        static final Loaded EMPTY = new Loaded(new PackageLootTable[0], new boolean[0], new boolean[0], List.of());
+    }
+
+    /**
+     * Loot table handles resolved from one set of reloadable registries, indexed by PackageType.getIndex() and
+     * filled on first use; a reload brings new registries and so starts a fresh set.
+     */
+    private record TableHandles(ReloadableServerRegistries.Holder registries, LootTable[] tables) {
+    }
+
+    private static volatile Loaded loaded = Loaded.EMPTY;
+    private static volatile TableHandles tableHandles;
+    // The last loaded definitions, kept so config changes can recompile without a datapack reload
+    private static volatile Map<ResourceLocation, JsonElement> definitions = Map.of();
+
+    public PackageLootTables() {
+        super(GSON, DIRECTORY);
+    }
+
+    /**
+     * Gets the compiled table for a package type. Never null; unknown, mystery or broken definitions give an
+     * empty table.
+     */
+    public static PackageLootTable get(LootPackagesMod.PackageType packageType) {
+        PackageLootTable[] tables = loaded.tables();
+        int index = packageType.getIndex();
+        return index >= 0 && index < tables.length ? tables[index] : PackageLootTable.EMPTY;
+    }
+
+    /**
+     * Gets the type's lootpackages:packages/<type> loot table, or LootTable.EMPTY if the datapacks do not define
+     * one. The handle is looked up once per reload rather than on every open.
+     */
+    public static LootTable getLootTable(MinecraftServer server, LootPackagesMod.PackageType packageType) {
+        ReloadableServerRegistries.Holder registries = server.reloadableRegistries();
+        TableHandles handles = tableHandles;
+        int index = packageType.getIndex();
+        if (index < 0) {
+            return LootTable.EMPTY;
+        }
+        if (handles == null || handles.registries() != registries || index >= handles.tables().length) {
+            // Racing callers may each build a set; they resolve the same handles, so the last one written wins
+            handles = new TableHandles(registries, new LootTable[LootPackagesMod.PackageType.count()]);
+            tableHandles = handles;
+        }
+
+        LootTable table = handles.tables()[index];
+        if (table == null) {
+            table = registries.getLootTable(getLootTableKey(packageType));
+            handles.tables()[index] = table;
+        }
+        return table;
+    }
+
+    public static ResourceKey<LootTable> getLootTableKey(LootPackagesMod.PackageType packageType) {
+        return ResourceKey.create(Registries.LOOT_TABLE, packageType.getId().withPrefix(DIRECTORY + "/"));
+    }
+
+    /**
+     * Whether a definition for the type is loaded, even one that failed to compile.
+     */
+    public static boolean isDefined(LootPackagesMod.PackageType packageType) {
+        boolean[] defined = loaded.defined();
+        int index = packageType.getIndex();
+        return index >= 0 && index < defined.length && defined[index];
+    }
+
+    public static boolean isMystery(LootPackagesMod.PackageType packageType) {
+        boolean[] mystery = loaded.mystery();
+        int index = packageType.getIndex();
+        return index >= 0 && index < mystery.length && mystery[index];
+    }
+
+    /**
+     * The loaded package types, sorted by id.
+     */
+    public static List<LootPackagesMod.PackageType> types() {
+        return loaded.types();
+    }
+
+    /**
+     * Drops cached biome-to-theme lookups; biome tags may have been rebound.
+     */
+    public static void clearBiomeCaches() {
+        for (PackageLootTable table : loaded.tables()) {
+            table.clearBiomeCache();
+        }
+    }
+
+    @Override
+    protected void apply(Map<ResourceLocation, JsonElement> definitions, ResourceManager resourceManager, ProfilerFiller profiler) {
+        load(definitions);
+    }
+
+    /**
+     * Recompiles the last loaded definitions against the current config tuning. Does nothing before the first
+     * datapack load.
+     */
+    public static void recompile() {
+        Map<ResourceLocation, JsonElement> last = definitions;
+        if (!last.isEmpty()) {
+            load(last);
+        }
+    }
+
+    /**
+     * Compiles the given definitions (keyed by package type id) with the config tuning applied and swaps them in.
+     */
+    public static synchronized void load(Map<ResourceLocation, JsonElement> definitions) {
+        PackageLootTables.definitions = Map.copyOf(definitions);
+
+        // Sorted, so type listings and the display order do not depend on hash order
+        Map<ResourceLocation, JsonElement> sorted = new TreeMap<>(definitions);
+        List<LootPackagesMod.PackageType> types = new ArrayList<>(sorted.size());
+        for (ResourceLocation id : sorted.keySet()) {
+            types.add(LootPackagesMod.PackageType.of(id));
+        }
+
+        int size = LootPackagesMod.PackageType.count();
+        PackageLootTable[] tables = new PackageLootTable[size];
+        Arrays.fill(tables, PackageLootTable.EMPTY);
+        boolean[] defined = new boolean[size];
+        boolean[] mystery = new boolean[size];
+        Map<LootPackagesMod.PackageType, PackageDisplay> displays = new LinkedHashMap<>();
+        int compiled = 0;
+
+        for (LootPackagesMod.PackageType packageType : types) {
+            ResourceLocation id = packageType.getId();
+            int index = packageType.getIndex();
+            defined[index] = true;
+
+            try {
+                JsonObject definition = GsonHelper.convertToJsonObject(sorted.get(id), id.toString());
+                displays.put(packageType, PackageDisplay.parse(packageType, definition));
+                if (GsonHelper.getAsBoolean(definition, "mystery", false)) {
+                    mystery[index] = true;
+                    continue;
+                }
+                tables[index] = PackageLootTable.compile(definition, PackageTuning.fromConfig(packageType));
+                compiled++;
+            } catch (RuntimeException e) {
+                LootPackagesMod.LOGGER.error("Failed to compile package definition {}: {}", id, e.getMessage());
+                displays.putIfAbsent(packageType, PackageDisplay.unknown(packageType));
+            }
+        }
+
+        for (LootPackagesMod.PackageType packageType : LootPackagesMod.PackageType.BUILT_IN) {
+            if (!defined[packageType.getIndex()]) {
+                LootPackagesMod.LOGGER.warn("No package definition found for built-in package {}", packageType);
+            }
+        }
+
+        loaded = new Loaded(tables, defined, mystery, List.copyOf(types));
+        PackageDisplays.publish(displays);
+        PreRolledLoot.invalidate();
+        LootPackagesMod.LOGGER.info("Loaded {} package types, compiled {} loot tables", types.size(), compiled);
+    }
+}
@@ -0,0 +1,81 @@
+package com.randoola.lootpackages;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Low-overhead counters and latency histograms for package opening. Everything is lock-free, so recording
+ * from the server thread costs a few uncontended atomic adds.
+ */
+public class PackageMetrics {
+
+    // Package types come and go with datapacks, so counters are created on first use
+    private static final Map<LootPackagesMod.PackageType, LongAdder> OPENS = new ConcurrentHashMap<>();
+    private static final LongAdder STACKS_GRANTED = new LongAdder();
+    private static final LongAdder OVERFLOW_STACKS = new LongAdder();
+    private static final LongAdder OVERFLOW_ENTITIES = new LongAdder();
+
+    public static final LatencyHistogram GENERATION_TIME = new LatencyHistogram();
+    public static final LatencyHistogram INSERTION_TIME = new LatencyHistogram();
+
+    public static void recordOpen(LootPackagesMod.PackageType packageType, int count, long generationNanos,
+                                  long insertionNanos, LootDelivery.Result result) {
+        OPENS.computeIfAbsent(packageType, type -> new LongAdder()).add(count);
+        STACKS_GRANTED.add(result.stacks());
+        OVERFLOW_STACKS.add(result.overflowStacks());
+        OVERFLOW_ENTITIES.add(result.spawnedEntities());
+        GENERATION_TIME.record(generationNanos);
+        INSERTION_TIME.record(insertionNanos);
+    }
+
+    public static long getOpens(LootPackagesMod.PackageType packageType) {
+        LongAdder opens = OPENS.get(packageType);
+        return opens != null ? opens.sum() : 0;
+    }
+
+    public static long getTotalOpens() {
+        long total = 0;
+        for (LongAdder opens : OPENS.values()) {
+            total += opens.sum();
+        }
+        return total;
+    }
+
+    public static long getStacksGranted() {
+        return STACKS_GRANTED.sum();
+    }
+
+    public static long getOverflowStacks() {
+        return OVERFLOW_STACKS.sum();
+    }
+
+    public static long getOverflowEntities() {
+        return OVERFLOW_ENTITIES.sum();
+    }
+
+    public static void reset() {
+        for (LongAdder opens : OPENS.values()) {
+            opens.reset();
+        }
+        STACKS_GRANTED.reset();
+        OVERFLOW_STACKS.reset();
+        OVERFLOW_ENTITIES.reset();
+        GENERATION_TIME.reset();
+        INSERTION_TIME.reset();
+    }
+
+    /**
+     * One-line summary used by the periodic log line.
+     */
+    public static String summary() {
+        return String.format("%d opens, %d stacks granted, %d overflowed (%d entities); generation %s; insertion %s",
+                getTotalOpens(), getStacksGranted(), getOverflowStacks(), getOverflowEntities(),
+                describe(GENERATION_TIME), describe(INSERTION_TIME));
+    }
+
+    public static String describe(LatencyHistogram histogram) {
+        return String.format("p50=%.1fus p99=%.1fus max=%.1fus",
+                histogram.percentile(50) / 1000.0, histogram.percentile(99) / 1000.0, histogram.max() / 1000.0);
+    }
+}
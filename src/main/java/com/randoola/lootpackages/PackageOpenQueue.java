@@ -0,0 +1,181 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.ChatFormatting;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.chat.MutableComponent;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.item.ItemStack;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Server-wide queue of package opens, worked off at the end of each server tick within a count and time budget.
+ * Players take turns, so one player emptying stacks with an autoclicker cannot starve everyone else, and turns
+ * carry over between ticks. Packages leave the inventory when they are queued, not when they are opened.
+ *
+ * Only touched from the server thread.
+ */
+public final class PackageOpenQueue {
+
+    private static final Map<UUID, ArrayDeque<Pending>> QUEUES = new HashMap<>();
+    private static final ArrayDeque<UUID> TURNS = new ArrayDeque<>();
+    private static int queuedOpens = 0;
+
+    private PackageOpenQueue() {
+    }
+
+    private static final class Pending {
+        private final LootPackagesMod.PackageType packageType;
+        private final Component name;
+        private final SealedContents sealed;
+        private int total;
+        private int remaining;
+
+        private Pending(LootPackagesMod.PackageType packageType, Component name, SealedContents sealed, int count) {
+            this.packageType = packageType;
+            this.name = name;
+            this.sealed = sealed;
+            this.total = count;
+            this.remaining = count;
+        }
+    }
+
+    /**
+     * Queues opens for a player. Back-to-back opens of the same type (and seal, if sealed) merge into one
+     * request, so they are rolled and inserted as one batch.
+     *
+     * @return the number of packages that were already waiting ahead of this request, across all players
+     */
+    public static int enqueue(ServerPlayer player, LootPackagesMod.PackageType packageType, Component name,
+                              SealedContents sealed, int count) {
+        int ahead = queuedOpens;
+        ArrayDeque<Pending> queue = QUEUES.get(player.getUUID());
+        if (queue == null) {
+            queue = new ArrayDeque<>();
+            QUEUES.put(player.getUUID(), queue);
+            TURNS.addLast(player.getUUID());
+        }
+
+        Pending last = queue.peekLast();
+        if (last != null && last.packageType.equals(packageType) && Objects.equals(last.sealed, sealed)) {
+            last.total += count;
+            last.remaining += count;
+        } else {
+            queue.addLast(new Pending(packageType, name, sealed, count));
+        }
+        queuedOpens += count;
+        return ahead;
+    }
+
+    /**
+     * Opens queued packages until the per-tick count or time budget runs out. At least one open always runs,
+     * so the queue keeps moving even with a tiny budget.
+     */
+    public static void drain(MinecraftServer server) {
+        if (TURNS.isEmpty()) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + LootPackagesConfig.getTickBudgetNanos();
+        int budget = LootPackagesConfig.getMaxOpensPerTick();
+
+        while (budget > 0 && !TURNS.isEmpty()) {
+            UUID playerId = TURNS.pollFirst();
+            ArrayDeque<Pending> queue = QUEUES.get(playerId);
+            ServerPlayer player = server.getPlayerList().getPlayer(playerId);
+            if (player == null) {
+                // Logging out flushes the queue, so this only happens if that was skipped somehow
+                discard(playerId, queue);
+                continue;
+            }
+
+            // An even share of what is left, so everyone waiting gets a turn this tick if the budget allows
+            budget -= openNext(player, queue, Math.max(1, budget / (TURNS.size() + 1)));
+            if (queue.isEmpty()) {
+                QUEUES.remove(playerId);
+            } else {
+                TURNS.addLast(playerId);
+            }
+
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Hands everything a player still has queued back as unopened packages, so a long queue costs nothing when
+     * the player logs out. Used before their inventory is saved; what does not fit goes to the overflow sink.
+     */
+    public static void flush(ServerPlayer player) {
+        ArrayDeque<Pending> queue = QUEUES.remove(player.getUUID());
+        if (queue == null) {
+            return;
+        }
+        TURNS.remove(player.getUUID());
+
+        int maxStackSize = LootPackagesMod.PACKAGE.get().getDefaultMaxStackSize();
+        List<ItemStack> overflow = new ArrayList<>();
+        for (Pending pending : queue) {
+            queuedOpens -= pending.remaining;
+            for (int left = pending.remaining; left > 0; left -= maxStackSize) {
+                ItemStack stack = PackageItem.create(pending.packageType, Math.min(left, maxStackSize));
+                if (pending.sealed != null) {
+                    stack.set(LootPackagesMod.SEALED_CONTENTS.get(), pending.sealed);
+                }
+                if (!player.getInventory().add(stack)) {
+                    overflow.add(stack);
+                }
+            }
+        }
+        if (!overflow.isEmpty()) {
+            LootDelivery.handleOverflow(player, overflow);
+        }
+    }
+
+    public static void clear() {
+        if (queuedOpens > 0) {
+            LootPackagesMod.LOGGER.warn("Discarding {} queued package opens", queuedOpens);
+        }
+        QUEUES.clear();
+        TURNS.clear();
+        queuedOpens = 0;
+    }
+
+    public static int size() {
+        return queuedOpens;
+    }
+
+    private static int openNext(ServerPlayer player, ArrayDeque<Pending> queue, int limit) {
+        Pending pending = queue.peekFirst();
+        int count = Math.min(limit, pending.remaining);
+        LootPackagesMod.openPackages(player, pending.packageType, count, pending.sealed);
+        pending.remaining -= count;
+        queuedOpens -= count;
+
+        if (pending.remaining == 0) {
+            queue.pollFirst();
+            MutableComponent message = pending.total == 1
+                    ? Component.translatable("message.lootpackages.opened", pending.name)
+                    : Component.translatable("message.lootpackages.opened_many", pending.total, pending.name);
+            player.sendSystemMessage(message.withStyle(ChatFormatting.GOLD), false);
+        }
+        return count;
+    }
+
+    private static void discard(UUID playerId, ArrayDeque<Pending> queue) {
+        QUEUES.remove(playerId);
+        for (Pending pending : queue) {
+            queuedOpens -= pending.remaining;
+            LootPackagesMod.LOGGER.warn("Discarding {} queued {} opens for missing player {}",
+                    pending.remaining, pending.packageType, playerId);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.Containers;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.phys.Vec3;
+import net.neoforged.neoforge.capabilities.BlockCapabilityCache;
+import net.neoforged.neoforge.capabilities.Capabilities;
+import net.neoforged.neoforge.items.IItemHandler;
+import net.neoforged.neoforge.items.ItemHandlerHelper;
+import net.neoforged.neoforge.items.ItemStackHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Input slots and pending output of a Package Opener. Each work tick opens up to opening.openerOpensPerTick
+ * packages, one coalesced batch per input slot, and inserts the loot into the item handler the block faces.
+ * Loot that does not fit is kept and pushed before anything else is opened, so a full target stops the opener
+ * instead of spilling items.
+ *
+ * Work is driven by scheduled block ticks: every insertion schedules one, work schedules the next while input
+ * is left, and a blocked opener retries every BLOCKED_RETRY_TICKS. With no input, or nothing to push into,
+ * nothing is scheduled; placing a target in front wakes it again through the capability cache, which exists from
+ * the moment the block entity is loaded.
+ */
+public class PackageOpenerBlockEntity extends BlockEntity {
+
+    public static final int INPUT_SLOTS = 9;
+    private static final int BLOCKED_RETRY_TICKS = 20;
+
+    private final InputHandler input = new InputHandler();
+    private final List<ItemStack> pending = new ArrayList<>();
+    private BlockCapabilityCache<IItemHandler, Direction> target;
+    private Direction targetFacing;
+
+    public PackageOpenerBlockEntity(BlockPos pos, BlockState state) {
+        super(LootPackagesMod.PACKAGE_OPENER_BLOCK_ENTITY.get(), pos, state);
+    }
+
+    /**
+     * Accepts package items only and never hands them back out, so a hopper below cannot pull packages
+     * through the opener.
+     */
+    private final class InputHandler extends ItemStackHandler {
+        private InputHandler() {
+            super(INPUT_SLOTS);
+        }
+
+        @Override
+        public boolean isItemValid(int slot, ItemStack stack) {
+            return PackageItem.getPackageType(stack) != null;
+        }
+
+        @Override
+        public ItemStack extractItem(int slot, int amount, boolean simulate) {
+            return ItemStack.EMPTY;
+        }
+
+        @Override
+        protected void onContentsChanged(int slot) {
+            setChanged();
+            wake(1);
+        }
+    }
+
+    public IItemHandler getInput() {
+        return input;
+    }
+
+    @Override
+    public void onLoad() {
+        super.onLoad();
+        // The cache is what wakes a sleeping opener when a target appears, so it has to exist from the start,
+        // not only once the opener has ticked; after a chunk reload nothing else would ever tick it
+        if (level instanceof ServerLevel serverLevel) {
+            getTarget(serverLevel);
+        }
+    }
+
+    /**
+     * One work tick: push pending loot, then open a batch if nothing is pending, then schedule the next tick
+     * if there is anything left to do.
+     */
+    void work(ServerLevel level) {
+        IItemHandler output = getTarget(level);
+        if (output == null) {
+            // Sleep until the capability cache reports a new target
+            return;
+        }
+
+        if (!pending.isEmpty()) {
+            pending.replaceAll(stack -> ItemHandlerHelper.insertItemStacked(output, stack, false));
+            pending.removeIf(ItemStack::isEmpty);
+            setChanged();
+        }
+        if (pending.isEmpty()) {
+            openBatch(level, output);
+        }
+
+        if (!pending.isEmpty()) {
+            wake(BLOCKED_RETRY_TICKS);
+        } else if (hasInput()) {
+            wake(1);
+        }
+    }
+
+    private void openBatch(ServerLevel level, IItemHandler output) {
+        int budget = LootPackagesConfig.getOpenerOpensPerTick();
+        for (int slot = 0; slot < INPUT_SLOTS && budget > 0 && pending.isEmpty(); slot++) {
+            ItemStack stack = input.getStackInSlot(slot);
+            LootPackagesMod.PackageType packageType = PackageItem.getPackageType(stack);
+            if (packageType == null || !PackageLootTables.isDefined(packageType)) {
+                // Left in place until its definition is loaded again
+                continue;
+            }
+
+            SealedContents sealed = stack.get(LootPackagesMod.SEALED_CONTENTS.get());
+            int count = Math.min(budget, stack.getCount());
+
+            long start = System.nanoTime();
+            LootBuffer loot = new LootBuffer(count * 16);
+            long seed = LootPackagesMod.rollPackages(level, Vec3.atCenterOf(worldPosition), null, packageType, count, sealed, loot);
+            if (PackageAuditLog.isEnabled()) {
+                PackageAuditLog.recordAutomated(packageType, count, sealed, seed, loot);
+            } else if (sealed != null) {
+                LootPackagesMod.LOGGER.info("Package opener at {} opened {}x sealed {} #{}",
+                        worldPosition.toShortString(), count, packageType, sealed.getSealId());
+            }
+            long generated = System.nanoTime();
+
+            // Shrunk directly rather than through the handler, so opening does not count as an insertion
+            stack.shrink(count);
+            budget -= count;
+
+            LootDelivery.Result result = deliver(output, loot);
+            PackageMetrics.recordOpen(packageType, count, generated - start, System.nanoTime() - generated, result);
+        }
+        setChanged();
+    }
+
+    /**
+     * Coalesces the loot and inserts it into the target; whatever does not fit becomes pending.
+     */
+    private LootDelivery.Result deliver(IItemHandler output, LootBuffer loot) {
+        loot.coalesce();
+        int before = pending.size();
+        int stacks = loot.forEachStack(stack -> {
+            ItemStack left = ItemHandlerHelper.insertItemStacked(output, stack, false);
+            if (!left.isEmpty()) {
+                pending.add(left);
+            }
+        });
+        return new LootDelivery.Result(stacks, pending.size() - before, 0);
+    }
+
+    private IItemHandler getTarget(ServerLevel level) {
+        Direction facing = getBlockState().getValue(PackageOpenerBlock.FACING);
+        if (target == null || targetFacing != facing) {
+            target = BlockCapabilityCache.create(Capabilities.ItemHandler.BLOCK, level, worldPosition.relative(facing),
+                    facing.getOpposite(), () -> !isRemoved(), () -> wake(1));
+            targetFacing = facing;
+        }
+        return target.getCapability();
+    }
+
+    private boolean hasInput() {
+        for (int slot = 0; slot < INPUT_SLOTS; slot++) {
+            if (!input.getStackInSlot(slot).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Schedules a work tick. Scheduling is deduplicated per position, so waking an awake opener is free.
+     */
+    private void wake(int delay) {
+        if (level != null && !level.isClientSide && !isRemoved()) {
+            level.scheduleTick(worldPosition, getBlockState().getBlock(), delay);
+        }
+    }
+
+    /**
+     * Drops the input packages, and the pending loot packed into overflow packages.
+     */
+    void dropContents(Level level, BlockPos pos) {
+        for (int slot = 0; slot < INPUT_SLOTS; slot++) {
+            Containers.dropItemStack(level, pos.getX(), pos.getY(), pos.getZ(), input.getStackInSlot(slot));
+        }
+        for (int start = 0; start < pending.size(); start += OverflowPackageItem.CAPACITY) {
+            List<ItemStack> chunk = pending.subList(start, Math.min(pending.size(), start + OverflowPackageItem.CAPACITY));
+            Containers.dropItemStack(level, pos.getX(), pos.getY(), pos.getZ(), OverflowPackageItem.pack(chunk));
+        }
+        pending.clear();
+    }
+
+    @Override
+    protected void saveAdditional(CompoundTag tag, HolderLookup.Provider registries) {
+        super.saveAdditional(tag, registries);
+        tag.put("input", input.serializeNBT(registries));
+        if (!pending.isEmpty()) {
+            ListTag list = new ListTag();
+            for (ItemStack stack : pending) {
+                list.add(stack.save(registries));
+            }
+            tag.put("pending", list);
+        }
+    }
+
+    @Override
+    protected void loadAdditional(CompoundTag tag, HolderLookup.Provider registries) {
+        super.loadAdditional(tag, registries);
+        input.deserializeNBT(registries, tag.getCompound("input"));
+        pending.clear();
+        for (Tag stack : tag.getList("pending", Tag.TAG_COMPOUND)) {
+            ItemStack.parse(registries, stack).ifPresent(pending::add);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtOps;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.RandomSequence;
+import net.minecraft.world.level.saveddata.SavedData;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The random sequences package rolls are drawn from, one per package type, saved with each level.
+ *
+ * Vanilla hands every dimension the overworld's RandomSequences, so its sequences are shared across levels and
+ * unsafe when dimensions tick on different threads. This store lives in each level's own data storage and is
+ * only touched from that level's thread. Sequences are seeded from the world seed and the package id with the
+ * dimension appended, so dimensions roll different contents and a world replays the same contents from the
+ * same state.
+ */
+public class PackageRandomSequences extends SavedData {
+
+    private static final String DATA_NAME = LootPackagesMod.MODID + "_random_sequences";
+
+    private final long worldSeed;
+    private final String dimension;
+    private final Map<ResourceLocation, RandomSequence> sequences = new HashMap<>();
+
+    private PackageRandomSequences(long worldSeed, String dimension) {
+        this.worldSeed = worldSeed;
+        this.dimension = dimension;
+    }
+
+    public static PackageRandomSequences get(ServerLevel level) {
+        long worldSeed = level.getSeed();
+        String dimension = level.dimension().location().toDebugFileName();
+        return level.getDataStorage().computeIfAbsent(new SavedData.Factory<>(
+                () -> new PackageRandomSequences(worldSeed, dimension),
+                (tag, registries) -> load(worldSeed, dimension, tag), null), DATA_NAME);
+    }
+
+    public RandomSource get(LootPackagesMod.PackageType packageType) {
+        RandomSequence sequence = sequences.get(packageType.getId());
+        if (sequence == null) {
+            sequence = new RandomSequence(worldSeed, packageType.getId().withSuffix("/" + dimension));
+            sequences.put(packageType.getId(), sequence);
+        }
+        // The sequence advances on every draw, so the level always saves its latest state
+        setDirty();
+        return sequence.random();
+    }
+
+    @Override
+    public CompoundTag save(CompoundTag tag, HolderLookup.Provider registries) {
+        CompoundTag saved = new CompoundTag();
+        sequences.forEach((id, sequence) -> saved.put(id.toString(),
+                RandomSequence.CODEC.encodeStart(NbtOps.INSTANCE, sequence).getOrThrow()));
+        tag.put("sequences", saved);
+        return tag;
+    }
+
+    private static PackageRandomSequences load(long worldSeed, String dimension, CompoundTag tag) {
+        PackageRandomSequences sequences = new PackageRandomSequences(worldSeed, dimension);
+        CompoundTag saved = tag.getCompound("sequences");
+        for (String key : saved.getAllKeys()) {
+            ResourceLocation id = ResourceLocation.tryParse(key);
+            if (id == null) {
+                continue;
+            }
+            RandomSequence.CODEC.parse(NbtOps.INSTANCE, saved.get(key))
+                    .resultOrPartial(error -> LootPackagesMod.LOGGER.error("Failed to load package random sequence {}: {}", key, error))
+                    .ifPresent(sequence -> sequences.sequences.put(id, sequence));
+        }
+        return sequences;
+    }
+}
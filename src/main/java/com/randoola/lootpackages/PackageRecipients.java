@@ -0,0 +1,87 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.saveddata.SavedData;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Server-wide index of who has received each one-time grant, so "who got a starter package" can be answered
+ * without loading every player file. The player's own attachment stays the authority on whether they get a
+ * grant; this index only mirrors it. Saved with the overworld.
+ */
+public class PackageRecipients extends SavedData {
+
+    private static final String DATA_NAME = LootPackagesMod.MODID + "_recipients";
+
+    private final Map<ResourceLocation, Set<UUID>> recipients = new HashMap<>();
+
+    public static PackageRecipients get(MinecraftServer server) {
+        return server.overworld().getDataStorage().computeIfAbsent(
+                new SavedData.Factory<>(PackageRecipients::new, PackageRecipients::load, null), DATA_NAME);
+    }
+
+    /**
+     * Records that the player received the grant.
+     */
+    public void record(ResourceLocation grant, UUID player) {
+        if (recipients.computeIfAbsent(grant, id -> new LinkedHashSet<>()).add(player)) {
+            setDirty();
+        }
+    }
+
+    public boolean hasReceived(ResourceLocation grant, UUID player) {
+        Set<UUID> players = recipients.get(grant);
+        return players != null && players.contains(player);
+    }
+
+    /**
+     * The players who received the grant, in the order they received it.
+     */
+    public Set<UUID> getRecipients(ResourceLocation grant) {
+        Set<UUID> players = recipients.get(grant);
+        return players == null ? Set.of() : Collections.unmodifiableSet(players);
+    }
+
+    @Override
+    public CompoundTag save(CompoundTag tag, HolderLookup.Provider registries) {
+        CompoundTag grants = new CompoundTag();
+        recipients.forEach((grant, players) -> {
+            ListTag list = new ListTag();
+            for (UUID player : players) {
+                list.add(NbtUtils.createUUID(player));
+            }
+            grants.put(grant.toString(), list);
+        });
+        tag.put("grants", grants);
+        return tag;
+    }
+
+    private static PackageRecipients load(CompoundTag tag, HolderLookup.Provider registries) {
+        PackageRecipients index = new PackageRecipients();
+        CompoundTag grants = tag.getCompound("grants");
+        for (String key : grants.getAllKeys()) {
+            ResourceLocation grant = ResourceLocation.tryParse(key);
+            if (grant == null) {
+                continue;
+            }
+            Set<UUID> players = new LinkedHashSet<>();
+            for (Tag player : grants.getList(key, Tag.TAG_INT_ARRAY)) {
+                players.add(NbtUtils.loadUUID(player));
+            }
+            index.recipients.put(grant, players);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,151 @@
+package com.randoola.lootpackages;
+
+import it.unimi.dsi.fastutil.ints.Int2FloatOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2LongOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntList;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * The [packages.<type>] config section for one package type, resolved to registry ids. Only used while
+ * compiling a table; opening a package never looks at the config.
+ */
+public final class PackageTuning {
+
+    public static final PackageTuning NONE = new PackageTuning(1.0, 1.0,
+            new Int2IntOpenHashMap(), new Int2FloatOpenHashMap(), new Int2LongOpenHashMap());
+
+    private static final int NO_WEIGHT = -1;
+    private static final float NO_CHANCE = -1.0f;
+    private static final long NO_COUNT = -1L;
+
+    private final double countMultiplier;
+    private final double chanceMultiplier;
+    private final Int2IntOpenHashMap weights;
+    private final Int2FloatOpenHashMap chances;
+    private final Int2LongOpenHashMap counts;
+
+    private PackageTuning(double countMultiplier, double chanceMultiplier, Int2IntOpenHashMap weights,
+                          Int2FloatOpenHashMap chances, Int2LongOpenHashMap counts) {
+        this.countMultiplier = countMultiplier;
+        this.chanceMultiplier = chanceMultiplier;
+        this.weights = weights;
+        this.chances = chances;
+        this.counts = counts;
+        weights.defaultReturnValue(NO_WEIGHT);
+        chances.defaultReturnValue(NO_CHANCE);
+        counts.defaultReturnValue(NO_COUNT);
+    }
+
+    public static PackageTuning fromConfig(LootPackagesMod.PackageType packageType) {
+        if (!LootPackagesConfig.hasTuning(packageType)) {
+            return NONE;
+        }
+        Int2IntOpenHashMap weights = new Int2IntOpenHashMap();
+        Int2FloatOpenHashMap chances = new Int2FloatOpenHashMap();
+        Int2LongOpenHashMap counts = new Int2LongOpenHashMap();
+
+        parseRules(packageType, LootPackagesConfig.getItemWeightRules(packageType),
+                (itemId, value) -> weights.put(itemId.intValue(), Integer.parseInt(value)));
+        parseRules(packageType, LootPackagesConfig.getChanceRules(packageType),
+                (itemId, value) -> chances.put(itemId.intValue(), Float.parseFloat(value)));
+        parseRules(packageType, LootPackagesConfig.getCountRules(packageType),
+                (itemId, value) -> counts.put(itemId.intValue(), parseCount(value)));
+
+        return new PackageTuning(LootPackagesConfig.getCountMultiplier(packageType),
+                LootPackagesConfig.getChanceMultiplier(packageType), weights, chances, counts);
+    }
+
+    /**
+     * Pool weight for an item: the configured override, or the definition's weight. 0 removes the item.
+     */
+    public int weight(int itemId, int weight) {
+        int override = weights.get(itemId);
+        return override == NO_WEIGHT ? weight : override;
+    }
+
+    /**
+     * Entry chance: the first override for an item in the pool, otherwise the scaled definition chance.
+     */
+    public float chance(float chance, IntList pool) {
+        for (int i = 0; i < pool.size(); i++) {
+            float override = chances.get(pool.getInt(i));
+            if (override != NO_CHANCE) {
+                return override;
+            }
+        }
+        return (float) Math.min(1.0, chance * chanceMultiplier);
+    }
+
+    /**
+     * Entry count range as {min, max}: the first override for an item in the pool, otherwise the scaled range.
+     */
+    public int[] count(int min, int max, IntList pool) {
+        for (int i = 0; i < pool.size(); i++) {
+            long override = counts.get(pool.getInt(i));
+            if (override != NO_COUNT) {
+                return new int[]{(int) (override >>> 32), (int) override};
+            }
+        }
+        if (countMultiplier == 1.0) {
+            return new int[]{min, max};
+        }
+        return new int[]{Math.max(1, (int) Math.round(min * countMultiplier)), Math.max(1, (int) Math.round(max * countMultiplier))};
+    }
+
+    static boolean isValidWeight(String value) {
+        try {
+            return Integer.parseInt(value) >= 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    static boolean isValidChance(String value) {
+        try {
+            float chance = Float.parseFloat(value);
+            return chance >= 0.0f && chance <= 1.0f;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    static boolean isValidCount(String value) {
+        try {
+            parseCount(value);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parses "n" or "min-max" into min and max packed into one long.
+     */
+    private static long parseCount(String value) {
+        int separator = value.indexOf('-');
+        int min = Integer.parseInt((separator < 0 ? value : value.substring(0, separator)).trim());
+        int max = separator < 0 ? min : Integer.parseInt(value.substring(separator + 1).trim());
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("Invalid count range " + value);
+        }
+        return (long) min << 32 | max;
+    }
+
+    private static void parseRules(LootPackagesMod.PackageType packageType, List<? extends String> rules,
+                                   BiConsumer<Integer, String> consumer) {
+        for (String rule : rules) {
+            int separator = rule.indexOf('=');
+            ResourceLocation location = ResourceLocation.tryParse(rule.substring(0, separator).trim());
+            if (location == null || !BuiltInRegistries.ITEM.containsKey(location)) {
+                LootPackagesMod.LOGGER.warn("Ignoring {} tuning for unknown item: {}", packageType, rule);
+                continue;
+            }
+            consumer.accept(BuiltInRegistries.ITEM.getId(BuiltInRegistries.ITEM.get(location)), rule.substring(separator + 1).trim());
+        }
+    }
+}
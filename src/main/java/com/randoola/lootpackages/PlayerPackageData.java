@@ -0,0 +1,47 @@
+package com.randoola.lootpackages;
+
+import com.mojang.serialization.Codec;
+import net.minecraft.resources.ResourceLocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-player package state, stored as the lootpackages:player_data attachment and kept through death.
+ * Immutable; changes replace the attachment, so the data is only saved when it was actually changed.
+ *
+ * @param grants ids of the one-time grants the player has received, like lootpackages:starter
+ */
+public record PlayerPackageData(List<ResourceLocation> grants) {
+
+    public static final PlayerPackageData EMPTY = new PlayerPackageData(List.of());
+
+    // Saved as a bare list of ids; a player with no grants saves nothing at all
+    public static final Codec<PlayerPackageData> CODEC = ResourceLocation.CODEC.listOf()
+            .xmap(PlayerPackageData::new, PlayerPackageData::grants);
+
+    // The starter survival package given on first join
+    public static final ResourceLocation STARTER_GRANT = ResourceLocation.fromNamespaceAndPath(LootPackagesMod.MODID, "starter");
+
+    public PlayerPackageData {
+        grants = List.copyOf(grants);
+    }
+
+    public boolean hasReceived(ResourceLocation grant) {
+        return grants.contains(grant);
+    }
+
+    public PlayerPackageData withGrant(ResourceLocation grant) {
+        if (hasReceived(grant)) {
+            return this;
+        }
+        List<ResourceLocation> updated = new ArrayList<>(grants.size() + 1);
+        updated.addAll(grants);
+        updated.add(grant);
+        return new PlayerPackageData(updated);
+    }
+
+    public boolean isEmpty() {
+        return grants.isEmpty();
+    }
+}
@@ -0,0 +1,216 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.level.levelgen.RandomSupport;
+import net.minecraft.world.level.levelgen.XoroshiroRandomSource;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Keeps a small bounded buffer of already rolled package contents per package type, filled by one background
+ * worker thread. Opening a package takes a ready roll and only does the insertion on the server thread; when
+ * the buffer is empty the caller rolls synchronously as before.
+ *
+ * A reload swaps in a fresh set of buffers (and reseeds the worker) after the new tables, item snapshot and
+ * config are published. A roll that was in flight during the swap lands in the old buffers and is dropped.
+ *
+ * Off by default (opening.preRolledPerType = 0): the worker rolls from its own random, so pre-rolled packages
+ * do not replay from the world's per-level package random sequences.
+ */
+public final class PreRolledLoot {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    private static volatile Buffers buffers = new Buffers(0);
+    private static volatile Thread worker;
+    private static volatile boolean running;
+
+    private PreRolledLoot() {
+    }
+
+    /**
+     * One rolled package: flat item id, count and damage columns. Never modified after creation.
+     */
+    public static final class RolledLoot {
+        private final int[] items;
+        private final int[] counts;
+        private final int[] damages;
+
+        private RolledLoot(LootBuffer loot) {
+            int size = loot.size();
+            this.items = new int[size];
+            this.counts = new int[size];
+            this.damages = new int[size];
+            for (int i = 0; i < size; i++) {
+                items[i] = loot.itemId(i);
+                counts[i] = loot.count(i);
+                damages[i] = loot.damage(i);
+            }
+        }
+
+        public void appendTo(LootBuffer loot) {
+            for (int i = 0; i < items.length; i++) {
+                loot.add(items[i], counts[i], damages[i]);
+            }
+        }
+    }
+
+    private static final class Buffers {
+        // Indexed by PackageType.getIndex(); only the loaded types get a queue
+        private final ArrayBlockingQueue<RolledLoot>[] queues;
+        private final List<LootPackagesMod.PackageType> types;
+        private final int capacity;
+
+        @SuppressWarnings("unchecked")
+        private Buffers(int capacity) {
+            this.capacity = capacity;
+            this.types = PackageLootTables.types();
+            this.queues = new ArrayBlockingQueue[LootPackagesMod.PackageType.count()];
+            if (capacity > 0) {
+                for (LootPackagesMod.PackageType packageType : types) {
+                    queues[packageType.getIndex()] = new ArrayBlockingQueue<>(capacity);
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a ready roll for the package type, or returns null if none is buffered or pre-rolling is off.
+     */
+    public static RolledLoot poll(LootPackagesMod.PackageType packageType) {
+        ArrayBlockingQueue<RolledLoot>[] queues = buffers.queues;
+        int index = packageType.getIndex();
+        ArrayBlockingQueue<RolledLoot> queue = index >= 0 && index < queues.length ? queues[index] : null;
+        if (queue == null) {
+            return null;
+        }
+        RolledLoot rolled = queue.poll();
+        if (rolled == null) {
+            MISSES.increment();
+            return null;
+        }
+        HITS.increment();
+        // Let the worker top the buffer back up
+        Thread thread = worker;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+        return rolled;
+    }
+
+    /**
+     * Drops every buffered roll and reseeds the worker. Call after new tables, items or config are published.
+     */
+    public static void invalidate() {
+        buffers = new Buffers(LootPackagesConfig.getPreRolledPerType());
+        Thread thread = worker;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    public static synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        invalidate();
+        running = true;
+        worker = Thread.ofPlatform()
+                .name("LootPackages pre-roll worker")
+                .daemon(true)
+                .priority(Thread.MIN_PRIORITY)
+                .start(PreRolledLoot::run);
+    }
+
+    public static synchronized void stop() {
+        Thread thread = worker;
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        worker = null;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        buffers = new Buffers(0);
+    }
+
+    public static long getHits() {
+        return HITS.sum();
+    }
+
+    public static long getMisses() {
+        return MISSES.sum();
+    }
+
+    public static void resetStats() {
+        HITS.reset();
+        MISSES.reset();
+    }
+
+    private static void run() {
+        RandomSource[] randoms = new RandomSource[0];
+        boolean[] failed = new boolean[0];
+        LootBuffer scratch = new LootBuffer(32);
+        Buffers seeded = null;
+
+        while (running) {
+            Buffers current = buffers;
+            if (current != seeded) {
+                // New buffers mean new data; start every type from a fresh seed
+                randoms = new RandomSource[current.queues.length];
+                failed = new boolean[current.queues.length];
+                for (LootPackagesMod.PackageType packageType : current.types) {
+                    randoms[packageType.getIndex()] = new XoroshiroRandomSource(RandomSupport.generateUniqueSeed());
+                }
+                seeded = current;
+            }
+
+            boolean rolled = false;
+            if (current.capacity > 0) {
+                for (LootPackagesMod.PackageType packageType : current.types) {
+                    int index = packageType.getIndex();
+                    ArrayBlockingQueue<RolledLoot> queue = current.queues[index];
+                    if (failed[index] || queue.remainingCapacity() == 0 || !canRoll(packageType)) {
+                        continue;
+                    }
+                    try {
+                        scratch.clear();
+                        LootPackagesMod.rollPackageLoot(packageType, randoms[index], scratch);
+                        queue.offer(new RolledLoot(scratch));
+                        rolled = true;
+                    } catch (RuntimeException e) {
+                        // Leave this type to the synchronous path until the next reload rather than kill the worker
+                        LootPackagesMod.LOGGER.error("Failed to pre-roll {}", packageType, e);
+                        failed[index] = true;
+                    }
+                }
+            }
+
+            if (!rolled) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Mystery rolls need the allowed-item snapshot, which the worker must never build itself. Biome-aware
+     * tables depend on where the package is opened, so there is nothing to roll ahead.
+     */
+    private static boolean canRoll(LootPackagesMod.PackageType packageType) {
+        if (packageType.isTableDriven()) {
+            return !PackageLootTables.get(packageType).isBiomeAware();
+        }
+        return AllowedItemSnapshot.current().isBuilt();
+    }
+}
@@ -0,0 +1,38 @@
+package com.randoola.lootpackages;
+
+import com.mojang.serialization.MapCodec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.functions.LootItemConditionalFunction;
+import net.minecraft.world.level.storage.loot.functions.LootItemFunctionType;
+import net.minecraft.world.level.storage.loot.parameters.LootContextParams;
+import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
+
+import java.util.List;
+
+/**
+ * Loot function lootpackages:seal_contents. Seals package stacks produced by a loot table when sealing is
+ * enabled and leaves everything else untouched, so tables can carry it unconditionally.
+ */
+public class SealContentsFunction extends LootItemConditionalFunction {
+
+    public static final MapCodec<SealContentsFunction> CODEC = RecordCodecBuilder.mapCodec(
+            instance -> commonFields(instance).apply(instance, SealContentsFunction::new));
+
+    protected SealContentsFunction(List<LootItemCondition> conditions) {
+        super(conditions);
+    }
+
+    @Override
+    protected ItemStack run(ItemStack stack, LootContext context) {
+        // Packages from a chest or a mob are themed for where they were generated
+        return SealedContents.sealIfEnabled(stack, context.getRandom().nextLong(), context.getLevel(),
+                context.getParamOrNull(LootContextParams.ORIGIN), context.getParamOrNull(LootContextParams.THIS_ENTITY));
+    }
+
+    @Override
+    public LootItemFunctionType<SealContentsFunction> getType() {
+        return LootPackagesMod.SEAL_CONTENTS_FUNCTION.get();
+    }
+}
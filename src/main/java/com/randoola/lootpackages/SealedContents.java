@@ -0,0 +1,214 @@
+package com.randoola.lootpackages;
+
+import com.mojang.serialization.Codec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import net.minecraft.ChatFormatting;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Holder;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.minecraft.network.RegistryFriendlyByteBuf;
+import net.minecraft.network.chat.Component;
+import net.minecraft.network.codec.ByteBufCodecs;
+import net.minecraft.network.codec.StreamCodec;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.ExtraCodecs;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.entity.Entity;
+import net.minecraft.world.item.Item;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.levelgen.XoroshiroRandomSource;
+import net.minecraft.world.phys.Vec3;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Package contents rolled when the package was created, stored on the stack as the lootpackages:sealed_contents
+ * component. Opening a sealed package only decodes and inserts. The seal id is the seed the contents were rolled
+ * from, so a given seal can be traced through the logs and re-rolled against the same definitions.
+ *
+ * Saved with item names so seals survive registry id changes; synced with raw registry ids. Stacks from the
+ * package's loot table that carry components are stored as whole ItemStacks.
+ */
+public final class SealedContents {
+
+    private record Entry(Item item, int count, int damage) {
+        private static final Codec<Entry> CODEC = RecordCodecBuilder.create(instance -> instance.group(
+                BuiltInRegistries.ITEM.byNameCodec().fieldOf("id").forGetter(Entry::item),
+                ExtraCodecs.POSITIVE_INT.fieldOf("count").forGetter(Entry::count),
+                Codec.INT.optionalFieldOf("damage", LootBuffer.NO_DAMAGE).forGetter(Entry::damage)
+        ).apply(instance, Entry::new));
+    }
+
+    public static final Codec<SealedContents> CODEC = RecordCodecBuilder.create(instance -> instance.group(
+            Codec.LONG.fieldOf("seal").forGetter(SealedContents::getSeal),
+            Entry.CODEC.listOf().fieldOf("contents").forGetter(SealedContents::entries),
+            ItemStack.CODEC.listOf().optionalFieldOf("stacks", List.of()).forGetter(contents -> contents.stacks)
+    ).apply(instance, SealedContents::fromEntries));
+
+    private static final StreamCodec<RegistryFriendlyByteBuf, List<ItemStack>> STACKS_STREAM_CODEC =
+            ItemStack.STREAM_CODEC.apply(ByteBufCodecs.list());
+
+    public static final StreamCodec<RegistryFriendlyByteBuf, SealedContents> STREAM_CODEC =
+            StreamCodec.of((buf, contents) -> contents.write(buf), SealedContents::read);
+
+    private final long seal;
+    private final int[] items;
+    private final int[] counts;
+    private final int[] damages;
+    private final List<ItemStack> stacks;
+    // Advanced tooltip line, built on first hover; a racing build only makes an equal copy
+    private Component sealLine;
+
+    private SealedContents(long seal, int[] items, int[] counts, int[] damages, List<ItemStack> stacks) {
+        this.seal = seal;
+        this.items = items;
+        this.counts = counts;
+        this.damages = damages;
+        this.stacks = stacks;
+    }
+
+    /**
+     * Rolls a package from the given seal with the currently loaded definitions and loot tables.
+     *
+     * @param origin where the package is created, or null if unknown (the biome is then unknown too)
+     * @param entity the entity the package is created for, or null
+     */
+    public static SealedContents roll(LootPackagesMod.PackageType packageType, long seal, ServerLevel level,
+                                      Vec3 origin, Entity entity) {
+        LootBuffer loot = new LootBuffer();
+        RandomSource random = new XoroshiroRandomSource(seal);
+        Holder<Biome> biome = origin == null ? null : level.getBiome(BlockPos.containing(origin));
+        LootPackagesMod.rollPackageLoot(packageType, random, loot, biome);
+        // Loot tables need an origin; without one the package counts as created at world spawn
+        LootPackagesMod.rollPackageTable(level, origin != null ? origin : Vec3.atCenterOf(level.getSharedSpawnPos()),
+                entity, packageType, random, 1, loot);
+        loot.coalesce();
+
+        int size = loot.size();
+        int[] items = new int[size];
+        int[] counts = new int[size];
+        int[] damages = new int[size];
+        for (int i = 0; i < size; i++) {
+            items[i] = loot.itemId(i);
+            counts[i] = loot.count(i);
+            damages[i] = loot.damage(i);
+        }
+        List<ItemStack> stacks = new ArrayList<>(loot.stacks().size());
+        for (ItemStack stack : loot.stacks()) {
+            stacks.add(stack.copy());
+        }
+        return new SealedContents(seal, items, counts, damages, List.copyOf(stacks));
+    }
+
+    /**
+     * Seals a package stack if sealing is enabled and it is not sealed yet. Every package in the stack shares
+     * the seal, so a stack of several opens to several copies of the same contents.
+     */
+    public static ItemStack sealIfEnabled(ItemStack stack, long seal, ServerLevel level, Vec3 origin, Entity entity) {
+        LootPackagesMod.PackageType packageType = PackageItem.getPackageType(stack);
+        if (LootPackagesConfig.shouldSealContents() && packageType != null
+                && !stack.has(LootPackagesMod.SEALED_CONTENTS.get())) {
+            stack.set(LootPackagesMod.SEALED_CONTENTS.get(), roll(packageType, seal, level, origin, entity));
+        }
+        return stack;
+    }
+
+    public long getSeal() {
+        return seal;
+    }
+
+    public String getSealId() {
+        return String.format("%016x", seal);
+    }
+
+    /**
+     * The seal line of advanced tooltips, built once per contents rather than on every rendered frame.
+     */
+    public Component getSealLine() {
+        Component line = sealLine;
+        if (line == null) {
+            line = Component.translatable("tooltip.lootpackages.package.seal", getSealId()).withStyle(ChatFormatting.DARK_GRAY);
+            sealLine = line;
+        }
+        return line;
+    }
+
+    public int size() {
+        return items.length + stacks.size();
+    }
+
+    public void appendTo(LootBuffer loot) {
+        for (int i = 0; i < items.length; i++) {
+            loot.add(items[i], counts[i], damages[i]);
+        }
+        for (ItemStack stack : stacks) {
+            loot.add(stack.copy());
+        }
+    }
+
+    private List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>(items.length);
+        for (int i = 0; i < items.length; i++) {
+            entries.add(new Entry(BuiltInRegistries.ITEM.byId(items[i]), counts[i], damages[i]));
+        }
+        return entries;
+    }
+
+    private static SealedContents fromEntries(long seal, List<Entry> entries, List<ItemStack> stacks) {
+        int size = entries.size();
+        int[] items = new int[size];
+        int[] counts = new int[size];
+        int[] damages = new int[size];
+        for (int i = 0; i < size; i++) {
+            Entry entry = entries.get(i);
+            items[i] = BuiltInRegistries.ITEM.getId(entry.item());
+            counts[i] = entry.count();
+            damages[i] = entry.damage();
+        }
+        return new SealedContents(seal, items, counts, damages, stacks);
+    }
+
+    private void write(RegistryFriendlyByteBuf buf) {
+        buf.writeLong(seal);
+        buf.writeVarInt(items.length);
+        for (int i = 0; i < items.length; i++) {
+            buf.writeVarInt(items[i]);
+            buf.writeVarInt(counts[i]);
+            // Shifted so NO_DAMAGE encodes as a one-byte zero
+            buf.writeVarInt(damages[i] + 1);
+        }
+        STACKS_STREAM_CODEC.encode(buf, stacks);
+    }
+
+    private static SealedContents read(RegistryFriendlyByteBuf buf) {
+        long seal = buf.readLong();
+        int size = buf.readVarInt();
+        int[] items = new int[size];
+        int[] counts = new int[size];
+        int[] damages = new int[size];
+        for (int i = 0; i < size; i++) {
+            items[i] = buf.readVarInt();
+            counts[i] = buf.readVarInt();
+            damages[i] = buf.readVarInt() - 1;
+        }
+        return new SealedContents(seal, items, counts, damages, STACKS_STREAM_CODEC.decode(buf));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof SealedContents other && seal == other.seal && Arrays.equals(items, other.items)
+                && Arrays.equals(counts, other.counts) && Arrays.equals(damages, other.damages)
+                && ItemStack.listMatches(stacks, other.stacks);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(seal) * 31 + Arrays.hashCode(items);
+    }
+}
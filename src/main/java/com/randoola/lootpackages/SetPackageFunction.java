@@ -0,0 +1,43 @@
+package com.randoola.lootpackages;
+
+import com.mojang.serialization.MapCodec;
+import com.mojang.serialization.codecs.RecordCodecBuilder;
+import net.minecraft.world.item.ItemStack;
+import net.minecraft.world.level.storage.loot.LootContext;
+import net.minecraft.world.level.storage.loot.functions.LootItemConditionalFunction;
+import net.minecraft.world.level.storage.loot.functions.LootItemFunctionType;
+import net.minecraft.world.level.storage.loot.predicates.LootItemCondition;
+
+import java.util.List;
+
+/**
+ * Loot function lootpackages:set_package. Sets the package type of lootpackages:package stacks produced by a
+ * loot table; it has to come before seal_contents, which seals for the type it finds on the stack.
+ */
+public class SetPackageFunction extends LootItemConditionalFunction {
+
+    public static final MapCodec<SetPackageFunction> CODEC = RecordCodecBuilder.mapCodec(
+            instance -> commonFields(instance)
+                    .and(LootPackagesMod.PackageType.CODEC.fieldOf("package").forGetter(function -> function.packageType))
+                    .apply(instance, SetPackageFunction::new));
+
+    private final LootPackagesMod.PackageType packageType;
+
+    protected SetPackageFunction(List<LootItemCondition> conditions, LootPackagesMod.PackageType packageType) {
+        super(conditions);
+        this.packageType = packageType;
+    }
+
+    @Override
+    protected ItemStack run(ItemStack stack, LootContext context) {
+        if (stack.is(LootPackagesMod.PACKAGE.get())) {
+            stack.set(LootPackagesMod.PACKAGE_TYPE.get(), packageType);
+        }
+        return stack;
+    }
+
+    @Override
+    public LootItemFunctionType<SetPackageFunction> getType() {
+        return LootPackagesMod.SET_PACKAGE_FUNCTION.get();
+    }
+}
@@ -0,0 +1,86 @@
+package com.randoola.lootpackages;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Starter packages waiting to be handed out. Logging in only queues the grant; it is given a short delay
+ * later, a few players per tick, so a mass reconnect after a restart does not roll and insert hundreds of
+ * packages inside the login burst. A player who leaves before their turn is skipped and queued again on the
+ * next login, since nothing was recorded for them.
+ *
+ * Only touched from the server thread.
+ */
+public final class StarterGrantQueue {
+
+    private record Pending(UUID player, int dueTick) {
+    }
+
+    private static final ArrayDeque<Pending> QUEUE = new ArrayDeque<>();
+    private static final Set<UUID> QUEUED = new HashSet<>();
+
+    private StarterGrantQueue() {
+    }
+
+    /**
+     * Queues the starter grant for a player who has not received it yet. Queuing a player twice does nothing.
+     */
+    public static void enqueue(ServerPlayer player) {
+        if (QUEUED.add(player.getUUID())) {
+            // Every entry gets the same delay, so the queue stays ordered by due tick
+            QUEUE.addLast(new Pending(player.getUUID(),
+                    player.server.getTickCount() + LootPackagesConfig.getStarterGrantDelayTicks()));
+        }
+    }
+
+    /**
+     * Gives the grants that are due, up to the per-tick limit.
+     */
+    public static void drain(MinecraftServer server) {
+        int budget = LootPackagesConfig.getStarterGrantsPerTick();
+        while (budget > 0 && !QUEUE.isEmpty() && QUEUE.peekFirst().dueTick() <= server.getTickCount()) {
+            Pending pending = QUEUE.pollFirst();
+            QUEUED.remove(pending.player());
+
+            ServerPlayer player = server.getPlayerList().getPlayer(pending.player());
+            if (player != null && grant(player)) {
+                budget--;
+            }
+        }
+    }
+
+    /**
+     * Gives the starter package unless the player already has it, and records the grant on the player and in
+     * the recipient index.
+     *
+     * @return whether a package was given
+     */
+    static boolean grant(ServerPlayer player) {
+        PlayerPackageData data = player.getData(LootPackagesMod.PLAYER_DATA);
+        if (data.hasReceived(PlayerPackageData.STARTER_GRANT)) {
+            return false;
+        }
+
+        player.getInventory().add(SealedContents.sealIfEnabled(PackageItem.create(LootPackagesMod.PackageType.STARTER_SURVIVAL),
+                player.getRandom().nextLong(), player.serverLevel(), player.position(), player));
+        player.setData(LootPackagesMod.PLAYER_DATA, data.withGrant(PlayerPackageData.STARTER_GRANT));
+        PackageRecipients.get(player.server).record(PlayerPackageData.STARTER_GRANT, player.getUUID());
+
+        LootPackagesMod.LOGGER.debug("Gave starter survival package to {}", player.getName().getString());
+        return true;
+    }
+
+    public static int size() {
+        return QUEUE.size();
+    }
+
+    public static void clear() {
+        QUEUE.clear();
+        QUEUED.clear();
+    }
+}
@@ -1,19 +1,48 @@
 package com.randoola.lootpackages;
 
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.player.LocalPlayer;
+import net.minecraft.client.renderer.item.ItemProperties;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.item.CreativeModeTab;
 import net.neoforged.api.distmarker.Dist;
-import net.neoforged.bus.api.SubscribeEvent;
+import net.neoforged.bus.api.IEventBus;
 import net.neoforged.fml.common.Mod;
 import net.neoforged.fml.event.lifecycle.FMLClientSetupEvent;
 
 @Mod(value = LootPackagesMod.MODID, dist = Dist.CLIENT)
 public class StarterPackModClient {
 
-    public StarterPackModClient() {
-        // Client-side initialization (does nothing for this mod)
+    public StarterPackModClient(IEventBus modEventBus) {
+        modEventBus.addListener(this::onClientSetup);
     }
 
-    @SubscribeEvent
     public void onClientSetup(FMLClientSetupEvent event) {
+        event.enqueueWork(() ->
+                // The package model overrides pick a variant by the model number in the type's display data
+                ItemProperties.register(LootPackagesMod.PACKAGE.get(),
+                        ResourceLocation.fromNamespaceAndPath(LootPackagesMod.MODID, "model"),
+                        (stack, level, entity, seed) -> {
+                            LootPackagesMod.PackageType packageType = stack.get(LootPackagesMod.PACKAGE_TYPE.get());
+                            return packageType != null ? PackageDisplays.get(packageType).model() : 0;
+                        }));
         LootPackagesMod.LOGGER.info("Starter Pack client setup complete");
     }
-}
\ No newline at end of file
+
+    /**
+     * Rebuilds the creative tab after new package displays arrived. Vanilla only rebuilds tab contents when
+     * features, permissions or registries change, and a datapack reload changes none of them.
+     */
+    static void refreshCreativeTab() {
+        Minecraft minecraft = Minecraft.getInstance();
+        LocalPlayer player = minecraft.player;
+        if (player == null || minecraft.level == null) {
+            // Still joining; the tab is built when the creative screen first opens
+            return;
+        }
+        ModCreativeModeTabs.LOOT_PACKAGES_TAB.get().buildContents(new CreativeModeTab.ItemDisplayParameters(
+                player.connection.enabledFeatures(),
+                player.canUseGameMasterBlocks() && minecraft.options.operatorItemsTab().get(),
+                minecraft.level.registryAccess()));
+    }
+}